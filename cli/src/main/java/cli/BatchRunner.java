@@ -0,0 +1,329 @@
+package cli;
+
+import comparison.CandidateIndex;
+import comparison.FileDiscovery;
+import comparison.KGramIndex;
+import comparison.LshIndex;
+import comparison.Pipeline;
+import comparison.Progress;
+import comparison.ReferenceIndex;
+import comparison.ReportWriter;
+import comparison.ResultCollector;
+import comparison.SimHashIndex;
+import comparison.algorithms.AlgorithmType;
+import comparison.algorithms.Cancellation;
+import comparison.algorithms.ComparisonAlgorithm;
+import comparison.algorithms.DocumentFrequency;
+import comparison.resultObjects.FileComparison;
+import comparison.resultObjects.MethodMatch;
+import normalisation.Normaliser.Features;
+import normalisation.elements.elementContainers.JavaFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Headless entry point, runs the detection on a directory and writes the results to files without starting the GUI
+ * <p>
+ * Usage: BatchRunner --input DIR --output DIR [--features all|none|F1,F2..] [--algorithm ALGORITHM]
+ * [--threshold N] [--threads N] [--top N] [--prefilter | --lsh BANDSxROWS] [--cache DIR] [--include GLOB] [--exclude GLOB] [--max-size BYTES]
+ * [--time-limit SECONDS] [--archive DIR [--archive-add NAME]] [--methods] [--common-share PERCENT]
+ * <p>
+ * ALGORITHM is the name of any {@link AlgorithmType}, the usage message lists them.
+ * With Winnowing, --common-share PERCENT ignores fingerprints found in more than that share of the files (default 50)
+ * <p>
+ * --lsh is a triage mode for very large corpora, only pairs found by an {@link LshIndex} are compared,
+ * usually with the MinHash algorithm so every comparison is cheap
+ * <p>
+ * --methods also writes methods.csv, listing methods copied between any two input files found with a {@link SimHashIndex}
+ * <p>
+ * A run stopped by its time limit still writes the comparisons found so far, status.txt records whether the results are complete
+ */
+public class BatchRunner {
+
+    private static final int USAGE_ERROR = 2;
+    private static final int RUN_ERROR = 1;
+    private static final int PARTIAL_RESULTS = 3;
+    private static final long PROGRESS_PERIOD_MS = 2000;
+
+    private File input_dir;
+    private File output_dir;
+    private EnumSet<Features> features = EnumSet.allOf(Features.class);
+    private AlgorithmType algorithm = AlgorithmType.FINGERPRINT;
+    private int threshold = 70;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int top = 0;
+    private Supplier<? extends CandidateIndex> candidate_index;
+    private File cache_dir;
+    private List<String> includes = new ArrayList<>();
+    private List<String> excludes = new ArrayList<>();
+    private long max_size = Long.MAX_VALUE;
+    private Duration time_limit;
+    private File archive_dir;
+    private String archive_corpus;
+    private boolean find_methods = false;
+    // percent of the files a winnowing fingerprint may be found in before it is ignored, null for the default
+    private Integer common_share;
+
+    public static void main(String[] args) {
+        BatchRunner runner = new BatchRunner();
+        try {
+            runner.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(USAGE_ERROR);
+        }
+
+        try {
+            if (runner.archive_corpus != null) {
+                runner.archive();
+                return;
+            }
+            ResultCollector collector = runner.run();
+            System.out.println(collector.size() + " comparisons written to " + runner.output_dir);
+            if (collector.isPartial()) {
+                System.err.println("Partial results, " + collector.getPartialReason());
+                System.exit(PARTIAL_RESULTS);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Run failed: " + e);
+            System.exit(RUN_ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(RUN_ERROR);
+        }
+    }
+
+    /**
+     * Adds the input files to the archive instead of comparing them
+     */
+    void archive() throws IOException, InterruptedException {
+        try (ReferenceIndex reference = new ReferenceIndex(archive_dir, features)) {
+            int added = reference.addCorpus(input_dir, archive_corpus, new FileDiscovery(includes, excludes, 0, max_size), threads);
+            System.out.println(added + " files added to " + archive_dir + ", " + reference.size() + " archived");
+        }
+    }
+
+    /**
+     * Runs the pipeline and writes a summary csv and a report for every comparison kept
+     *
+     * @return collector holding the comparisons written
+     */
+    ResultCollector run() throws IOException, InterruptedException {
+        if (!output_dir.isDirectory() && !output_dir.mkdirs()) {
+            throw new IOException("Cannot create output directory " + output_dir);
+        }
+
+        ResultCollector collector = new ResultCollector(threshold, top);
+        // normalised input files, kept for the method index
+        List<JavaFile> normalised = Collections.synchronizedList(new ArrayList<>());
+        Progress progress = new Progress() {
+            @Override
+            public void fileNormalised(JavaFile file) {
+                super.fileNormalised(file);
+                if (find_methods) normalised.add(file);
+            }
+        };
+        progress.start(snapshot -> System.err.println(snapshot + " | " + snapshot.getStageRates()), PROGRESS_PERIOD_MS);
+        FileDiscovery discovery = new FileDiscovery(includes, excludes, 0, max_size);
+        try (ReferenceIndex reference = archive_dir == null ? null : new ReferenceIndex(archive_dir, features)) {
+            new Pipeline(features, getConstructor(), threads, candidate_index, cache_dir, discovery)
+                    .run(input_dir, reference, collector, progress, new Cancellation(time_limit));
+        } finally {
+            progress.stop();
+        }
+        Progress.Snapshot done = progress.snapshot();
+        System.err.printf("Compared %d pairs of %d files in %.1fs (%.0f pairs/s), hashing took %.1fs of thread time%n",
+                done.getCompared(), done.getTotalFiles(), done.getElapsedSeconds(),
+                done.getCompared() / Math.max(1e-9, done.getElapsedSeconds()), done.getPrepareSeconds());
+
+        List<FileComparison> comparisons = collector.getResults();
+        ReportWriter.writeSummary(comparisons, new File(output_dir, "results.csv"));
+        for (FileComparison comparison : comparisons) {
+            ReportWriter.writeComparison(comparison, output_dir);
+        }
+        if (find_methods) writeMethodCopies(normalised);
+        String status = collector.isPartial() ? "partial: " + collector.getPartialReason() : "complete";
+        Files.write(new File(output_dir, "status.txt").toPath(), List.of(status));
+        return collector;
+    }
+
+    /**
+     * Indexes the methods of every input file and writes the methods copied between files to methods.csv
+     *
+     * @param files - normalised input files
+     */
+    private void writeMethodCopies(List<JavaFile> files) throws IOException {
+        // files are normalised concurrently, sort them so the output does not depend on thread timing
+        List<JavaFile> sorted = new ArrayList<>(files);
+        sorted.sort(Comparator.comparing(file -> file.getFile().getPath()));
+        SimHashIndex index = new SimHashIndex();
+        sorted.forEach(index::add);
+        List<MethodMatch> matches = index.findCopies();
+        ReportWriter.writeMethodCopies(matches, new File(output_dir, "methods.csv"));
+        System.err.printf("Found %d method copies among %d methods%n", matches.size(), index.size());
+    }
+
+    /**
+     * @param args - command line arguments
+     * @throws IllegalArgumentException if an argument is unknown, missing its value or invalid
+     */
+    void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--input":
+                    input_dir = new File(value(args, ++i, arg));
+                    break;
+                case "--output":
+                    output_dir = new File(value(args, ++i, arg));
+                    break;
+                case "--features":
+                    features = parseFeatures(value(args, ++i, arg));
+                    break;
+                case "--algorithm":
+                    algorithm = AlgorithmType.fromName(value(args, ++i, arg));
+                    break;
+                case "--threshold":
+                    threshold = parseInt(value(args, ++i, arg), arg, 0, 100);
+                    break;
+                case "--threads":
+                    threads = parseInt(value(args, ++i, arg), arg, 1, Integer.MAX_VALUE);
+                    break;
+                case "--top":
+                    top = parseInt(value(args, ++i, arg), arg, 0, Integer.MAX_VALUE);
+                    break;
+                case "--prefilter":
+                    candidate_index = KGramIndex::new;
+                    break;
+                case "--lsh":
+                    candidate_index = parseLsh(value(args, ++i, arg));
+                    break;
+                case "--cache":
+                    cache_dir = new File(value(args, ++i, arg));
+                    break;
+                case "--include":
+                    includes.add(value(args, ++i, arg));
+                    break;
+                case "--exclude":
+                    excludes.add(value(args, ++i, arg));
+                    break;
+                case "--max-size":
+                    max_size = parseInt(value(args, ++i, arg), arg, 1, Integer.MAX_VALUE);
+                    break;
+                case "--time-limit":
+                    time_limit = Duration.ofSeconds(parseInt(value(args, ++i, arg), arg, 1, Integer.MAX_VALUE));
+                    break;
+                case "--archive":
+                    archive_dir = new File(value(args, ++i, arg));
+                    break;
+                case "--archive-add":
+                    archive_corpus = value(args, ++i, arg);
+                    break;
+                case "--methods":
+                    find_methods = true;
+                    break;
+                case "--common-share":
+                    common_share = parseInt(value(args, ++i, arg), arg, 1, 100);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+
+        if (input_dir == null || !input_dir.isDirectory()) {
+            throw new IllegalArgumentException("--input must be an existing directory");
+        }
+        if (archive_corpus != null && archive_dir == null) {
+            throw new IllegalArgumentException("--archive-add requires --archive");
+        }
+        if (output_dir == null && archive_corpus == null) {
+            throw new IllegalArgumentException("--output is required");
+        }
+        if (common_share != null && algorithm != AlgorithmType.WINNOWING) {
+            throw new IllegalArgumentException("--common-share only applies to " + AlgorithmType.WINNOWING.getName());
+        }
+    }
+
+    /**
+     * @return constructor of the selected algorithm for this run
+     */
+    private Supplier<ComparisonAlgorithm> getConstructor() {
+        if (common_share != null) return AlgorithmType.winnowing(common_share / 100.0);
+        return algorithm.getConstructor();
+    }
+
+    private static String value(String[] args, int index, String arg) {
+        if (index >= args.length) throw new IllegalArgumentException(arg + " requires a value");
+        return args[index];
+    }
+
+    private static int parseInt(String value, String arg, int min, int max) {
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(arg + " must be a number");
+        }
+        if (parsed < min || parsed > max) throw new IllegalArgumentException(arg + " out of range");
+        return parsed;
+    }
+
+    private static Supplier<LshIndex> parseLsh(String value) {
+        String[] parts = value.toLowerCase().split("x");
+        if (parts.length != 2) throw new IllegalArgumentException("--lsh must be given as BANDSxROWS");
+        int bands = parseInt(parts[0], "--lsh", 1, Integer.MAX_VALUE);
+        int rows = parseInt(parts[1], "--lsh", 1, Integer.MAX_VALUE);
+        // fail now rather than once the run has started
+        new LshIndex(bands, rows);
+        return () -> new LshIndex(bands, rows);
+    }
+
+    private static EnumSet<Features> parseFeatures(String value) {
+        if (value.equalsIgnoreCase("all")) return EnumSet.allOf(Features.class);
+        EnumSet<Features> parsed = EnumSet.noneOf(Features.class);
+        if (value.equalsIgnoreCase("none")) return parsed;
+        for (String name : value.split(",")) {
+            try {
+                parsed.add(Features.valueOf(name.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown feature " + name);
+            }
+        }
+        return parsed;
+    }
+
+    private static void printUsage() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Usage: BatchRunner --input DIR --output DIR [options]\n");
+        sb.append("  --features all|none|F1,F2..   normalisation features, one of " + EnumSet.allOf(Features.class) + "\n");
+        sb.append("  --algorithm NAME              ");
+        for (AlgorithmType type : AlgorithmType.values()) sb.append(type.getName() + " ");
+        sb.append("\n");
+        sb.append("  --threshold N                 keep comparisons scoring above N (default 70)\n");
+        sb.append("  --threads N                   comparison threads (default all processors)\n");
+        sb.append("  --top N                       keep only the N highest scoring comparisons\n");
+        sb.append("  --prefilter                   only compare files sharing enough k-grams\n");
+        sb.append("  --lsh BANDSxROWS              only compare files sharing a MinHash band, e.g. " + LshIndex.DEFAULT_BANDS + "x" + LshIndex.DEFAULT_ROWS + "\n");
+        sb.append("  --cache DIR                   reuse scores from previous runs\n");
+        sb.append("  --include GLOB                only compare files matching the glob, may be repeated\n");
+        sb.append("  --exclude GLOB                skip files and directories matching the glob, may be repeated\n");
+        sb.append("  --max-size BYTES              skip files larger than this\n");
+        sb.append("  --time-limit SECONDS          stop after this long and write the comparisons found so far\n");
+        sb.append("  --archive DIR                 also compare the input files with the files archived in DIR\n");
+        sb.append("  --archive-add NAME            add the input files to the archive under NAME instead of comparing them\n");
+        sb.append("  --methods                     also list methods copied between any two files in methods.csv\n");
+        sb.append("  --common-share PERCENT        with Winnowing, ignore fingerprints found in more than this share of the files"
+                + " (default " + Math.round(DocumentFrequency.DEFAULT_MAX_SHARE * 100) + ")\n");
+        System.err.print(sb);
+    }
+}
@@ -0,0 +1,30 @@
+package comparison;
+
+import normalisation.elements.elementContainers.JavaFile;
+
+/**
+ * Index choosing the pairs of files worth comparing, so the number of comparisons no longer grows with n^2
+ */
+public interface CandidateIndex {
+
+    /**
+     * Adds a normalised file to the index
+     *
+     * @param file normalised file
+     * @return id of the file, ids are given out in the order the files are added
+     */
+    int add(JavaFile file);
+
+    /**
+     * Finds the files added before the given file that are likely to be similar to it
+     *
+     * @param id file id
+     * @return ascending ids of the candidate files, all smaller than id
+     */
+    int[] candidates(int id);
+
+    /**
+     * @return number of files added
+     */
+    int size();
+}
@@ -0,0 +1,319 @@
+package comparison;
+
+import comparison.algorithms.Cancellation;
+import comparison.algorithms.CancelledException;
+import comparison.algorithms.ComparisonAlgorithm;
+import comparison.resultObjects.Alignment;
+import comparison.resultObjects.FileComparison;
+import normalisation.elements.elementContainers.JavaFile;
+import normalisation.elements.elementContainers.Method;
+import normalisation.util.TokenDictionary;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Performs the all-pairs file comparison on a fork-join worker pool.
+ * The pair space is indexed row by row (0-1, 0-2, ..., 1-2, ...) and split recursively between the workers,
+ * each worker uses its own algorithm instance as the algorithms keep per comparison state.
+ * Workers check the {@link Cancellation} before every pair and stop early once it is set, marking the collector as partial.
+ * Each comparison is given the lowest score the collector can still keep, so algorithms can give up on pairs that cannot reach it,
+ * and pairs whose cheap upper bound is already below it are not passed to the algorithm at all.
+ * The pool is kept until {@link #shutdown()} is called
+ */
+public class ComparisonEngine {
+
+    // number of pairs a task compares before it stops splitting
+    private static final int PAIRS_PER_TASK = 32;
+
+    private final ThreadLocal<ComparisonAlgorithm> algorithms;
+    private final ForkJoinPool pool;
+    private final ResultCache cache;
+    private final Cancellation cancellation;
+    private final LongAdder prepare_time = new LongAdder();
+    // token ids of the files compared by this engine, dropped with it so ids do not build up over runs
+    private final TokenDictionary dictionary = new TokenDictionary();
+
+    /**
+     * @param algorithm_supplier - creates a new algorithm instance, called once per worker thread
+     * @param threads            - number of worker threads
+     * @param cache              - scores from previous runs, null to always compare
+     * @param cancellation       - stops the comparisons early when set
+     */
+    public ComparisonEngine(Supplier<? extends ComparisonAlgorithm> algorithm_supplier, int threads, ResultCache cache,
+                            Cancellation cancellation) {
+        this.algorithms = ThreadLocal.withInitial(() -> {
+            ComparisonAlgorithm algorithm = algorithm_supplier.get();
+            algorithm.setCancellation(cancellation);
+            return algorithm;
+        });
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+        this.cache = cache;
+        this.cancellation = cancellation;
+    }
+
+    public ComparisonEngine(Supplier<? extends ComparisonAlgorithm> algorithm_supplier, int threads, ResultCache cache) {
+        this(algorithm_supplier, threads, cache, new Cancellation());
+    }
+
+    public ComparisonEngine(Supplier<? extends ComparisonAlgorithm> algorithm_supplier, int threads) {
+        this(algorithm_supplier, threads, null);
+    }
+
+    /**
+     * Compares every file with every other file
+     *
+     * @param files            - normalised files
+     * @param collector        - receives the comparisons, ordered by the pair position in a nested loop over the files
+     * @param on_pair_compared - called after each comparison, may be called from any worker thread
+     */
+    public void compareAll(List<JavaFile> files, ResultCollector collector, Runnable on_pair_compared) {
+        long pair_count = pairCount(files.size());
+        if (pair_count > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many pairs: " + pair_count);
+        compare(files, null, (int) pair_count, collector, on_pair_compared);
+    }
+
+    /**
+     * Compares only the given pairs of files, e.g. the candidate pairs from a {@link KGramIndex}
+     *
+     * @param files            - normalised files
+     * @param pairs            - pairs of file indexes packed with {@link KGramIndex#pack(int, int)}
+     * @param collector        - receives the comparisons, ordered by the packed pair
+     * @param on_pair_compared - called after each comparison, may be called from any worker thread
+     */
+    public void compare(List<JavaFile> files, long[] pairs, ResultCollector collector, Runnable on_pair_compared) {
+        compare(files, pairs, pairs.length, collector, on_pair_compared);
+    }
+
+    /**
+     * Starts comparing the given pairs without waiting for them to finish, used to compare files as they arrive
+     *
+     * @param files            - normalised files, the entries referenced by the pairs must not change
+     * @param pairs            - pairs of file indexes packed with {@link KGramIndex#pack(int, int)}
+     * @param collector        - receives the comparisons, ordered by the packed pair
+     * @param on_pair_compared - called after each comparison, may be called from any worker thread
+     * @return future completing once all pairs are compared
+     */
+    public CompletableFuture<Void> submit(List<JavaFile> files, long[] pairs, ResultCollector collector, Runnable on_pair_compared) {
+        PairRange range = new PairRange(files, pairs, collector, 0, pairs.length, algorithms, on_pair_compared);
+        return CompletableFuture.runAsync(range::invoke, pool);
+    }
+
+    /**
+     * Stops the worker threads once all submitted comparisons are finished
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private void compare(List<JavaFile> files, long[] pairs, int pair_count, ResultCollector collector, Runnable on_pair_compared) {
+        // parallel streams started from inside the pool run on its workers
+        pool.submit(() -> files.parallelStream().forEach(this::prepareFile)).join();
+        pool.invoke(new PairRange(files, pairs, collector, 0, pair_count, algorithms, on_pair_compared));
+    }
+
+    /**
+     * Builds everything compared for a file, the views on the file including the fuzzy hashes of its methods
+     * and the data the algorithm looks up, so the pair comparisons only read them. Token ids come from the dictionary
+     * of this engine.
+     * Must be called after the file is normalised and before it is compared, files may be prepared in parallel
+     *
+     * @param file normalised file
+     * @return time spent in nanoseconds
+     */
+    public long prepareFile(JavaFile file) {
+        long start = System.nanoTime();
+        file.setTokenDictionary(dictionary);
+        prepare(file);
+        algorithms.get().prepare(file);
+        long elapsed = System.nanoTime() - start;
+        prepare_time.add(elapsed);
+        return elapsed;
+    }
+
+    /**
+     * @return time spent preparing files in nanoseconds, summed over all threads
+     */
+    public long getPrepareTime() {
+        return prepare_time.sum();
+    }
+
+    /**
+     * Builds the lazily cached views on a file used during comparisons, so worker threads only ever read them.
+     * Must be called after the file is normalised and before it is compared
+     *
+     * @param file normalised file
+     */
+    public static void prepare(JavaFile file) {
+        file.getTokens();
+        file.getHistogram();
+        file.getLineHashes();
+        file.getNormalisedHash();
+        for (Method method : file.getFinalMethods()) {
+            method.getHash();
+            method.getTypeList();
+            method.getNameList();
+            method.getDecList();
+            method.getFinalSize();
+            method.getFinalVarSize();
+        }
+    }
+
+    /**
+     * Number of unordered pairs between n files
+     *
+     * @param n file count
+     * @return n(n-1)/2
+     */
+    public static long pairCount(int n) {
+        return (long) n * (n - 1) / 2;
+    }
+
+    /**
+     * Converts a pair index back into the indexes of the two files
+     *
+     * @param k pair index
+     * @param n file count
+     * @return {i, j} with i < j
+     */
+    static int[] pairAt(long k, int n) {
+        // number of pairs in the rows after row i is (n-i-1)(n-i-2)/2, solve for the row containing k
+        int i = (int) (n - 2 - Math.floor(Math.sqrt(-8.0 * k + 4.0 * n * (n - 1) - 7) / 2.0 - 0.5));
+        // correct any floating point error
+        while (i > 0 && rowStart(i, n) > k) i--;
+        while (i < n - 2 && rowStart(i + 1, n) <= k) i++;
+        int j = (int) (k - rowStart(i, n)) + i + 1;
+        return new int[]{i, j};
+    }
+
+    /**
+     * Index of the first pair in row i
+     */
+    private static long rowStart(int i, int n) {
+        return pairCount(n) - pairCount(n - i);
+    }
+
+    /**
+     * Fork-join task comparing a contiguous range of pair indexes
+     */
+    private class PairRange extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<JavaFile> files;
+        // explicit pairs to compare, null when comparing all pairs
+        private final long[] pairs;
+        private final ResultCollector collector;
+        private final int start;
+        private final int end;
+        private final ThreadLocal<ComparisonAlgorithm> algorithms;
+        private final Runnable on_pair_compared;
+
+        PairRange(List<JavaFile> files, long[] pairs, ResultCollector collector, int start, int end,
+                  ThreadLocal<ComparisonAlgorithm> algorithms, Runnable on_pair_compared) {
+            this.files = files;
+            this.pairs = pairs;
+            this.collector = collector;
+            this.start = start;
+            this.end = end;
+            this.algorithms = algorithms;
+            this.on_pair_compared = on_pair_compared;
+        }
+
+        @Override
+        protected void compute() {
+            if (stopped()) return;
+            if (end - start > PAIRS_PER_TASK) {
+                int mid = (start + end) >>> 1;
+                invokeAll(new PairRange(files, pairs, collector, start, mid, algorithms, on_pair_compared),
+                        new PairRange(files, pairs, collector, mid, end, algorithms, on_pair_compared));
+                return;
+            }
+
+            if (start == end) return;
+            ComparisonAlgorithm algorithm = algorithms.get();
+            if (pairs != null) {
+                for (int k = start; k < end; k++) {
+                    if (stopped() || !compare(algorithm, KGramIndex.first(pairs[k]), KGramIndex.second(pairs[k]))) return;
+                }
+                return;
+            }
+
+            int n = files.size();
+            int[] pair = pairAt(start, n);
+            int i = pair[0];
+            int j = pair[1];
+            for (int k = start; k < end; k++) {
+                if (stopped() || !compare(algorithm, i, j)) return;
+                // move along the row, wrapping onto the next one
+                if (++j == n) {
+                    i++;
+                    j = i + 1;
+                }
+            }
+        }
+
+        /**
+         * @return true if the run is stopped, in which case the remaining pairs of this range are left uncompared
+         */
+        private boolean stopped() {
+            if (!cancellation.isCancelled()) return false;
+            collector.markPartial(cancellation.getReason());
+            return true;
+        }
+
+        /**
+         * Scores a pair and only builds the full file comparison when the collector will keep it
+         *
+         * @return false if the run was stopped during the comparison
+         */
+        private boolean compare(ComparisonAlgorithm algorithm, int i, int j) {
+            JavaFile file1 = files.get(i);
+            JavaFile file2 = files.get(j);
+            Integer cached = cache == null ? null : cache.getScore(file1, file2);
+            int score;
+            if (cached != null) {
+                score = cached;
+            } else {
+                int min_score = collector.getMinScore();
+                // without a minimum no pair can be skipped, so the bound is not worth computing
+                double bound = min_score > 0 ? algorithm.upperBound(file1, file2) : 1;
+                boolean exact;
+                try {
+                    if (bound * 100 < min_score) {
+                        // pairs that cannot reach the minimum are scored by their bound without running the algorithm
+                        score = (int) (bound * 100);
+                        exact = false;
+                    } else {
+                        score = (int) (algorithm.compareFiles(file1, file2, min_score / 100.0) * 100);
+                        exact = algorithm.isExact();
+                    }
+                } catch (CancelledException e) {
+                    collector.markPartial(e.getReason());
+                    return false;
+                }
+                // bounds depend on the minimum at the time of the comparison, only exact scores are reused
+                if (cache != null && exact) cache.putScore(file1, file2, score);
+            }
+            if (collector.accepts(score)) {
+                if (cached != null && algorithm.alignsFiles()) {
+                    // the cache only holds scores, so the regions of a kept pair from the cache are matched again
+                    try {
+                        algorithm.compareFiles(file1, file2);
+                    } catch (CancelledException e) {
+                        collector.markPartial(e.getReason());
+                        return false;
+                    }
+                }
+                Alignment alignment = algorithm.alignsFiles() ? algorithm.getAlignment() : null;
+                collector.offer(KGramIndex.pack(i, j), new FileComparison(file1, file2, score, alignment));
+            }
+            if (on_pair_compared != null) on_pair_compared.run();
+            return true;
+        }
+    }
+}
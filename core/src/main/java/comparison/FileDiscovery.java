@@ -0,0 +1,156 @@
+package comparison;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the java and text files in a directory tree in a single walk, passing each one on as soon as it is found.
+ * Globs are matched against both the path relative to the root directory and the file name,
+ * so "*Test.java" matches anywhere in the tree and "build" excludes every directory called build
+ */
+public class FileDiscovery {
+
+    private static final String[] EXTENSIONS = {".java", ".txt"};
+
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+    private final long min_size;
+    private final long max_size;
+
+    /**
+     * @param includes - globs a file must match at least one of, empty to include every java and text file
+     * @param excludes - globs of files and directories to skip, a matching directory is skipped with everything in it
+     * @param min_size - smallest file size in bytes to include
+     * @param max_size - largest file size in bytes to include
+     */
+    public FileDiscovery(List<String> includes, List<String> excludes, long min_size, long max_size) {
+        this.includes = toMatchers(includes);
+        this.excludes = toMatchers(excludes);
+        this.min_size = min_size;
+        this.max_size = max_size;
+    }
+
+    /**
+     * Includes every java and text file of any size
+     */
+    public FileDiscovery() {
+        this(Collections.emptyList(), Collections.emptyList(), 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Receives the files as they are found
+     */
+    public interface Sink {
+        void accept(File file) throws InterruptedException;
+    }
+
+    /**
+     * Walks the directory tree once, symbolic links are not followed so each file is visited at most once
+     *
+     * @param root - directory to search
+     * @param sink - receives each matching file in the order they are visited
+     * @return number of files passed to the sink
+     * @throws IOException          if the root directory cannot be read
+     * @throws InterruptedException if interrupted while the sink is waiting
+     */
+    public int walk(File root, Sink sink) throws IOException, InterruptedException {
+        Path root_path = root.toPath();
+        int[] count = {0};
+        InterruptedException[] interrupted = {null};
+
+        Files.walkFileTree(root_path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(root_path) && matches(excludes, root_path.relativize(dir))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!attrs.isRegularFile() || !accepts(root_path.relativize(file), attrs.size())) {
+                    return FileVisitResult.CONTINUE;
+                }
+                try {
+                    sink.accept(file.toFile());
+                    count[0]++;
+                    return FileVisitResult.CONTINUE;
+                } catch (InterruptedException e) {
+                    interrupted[0] = e;
+                    return FileVisitResult.TERMINATE;
+                }
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                // unreadable entries are skipped rather than ending the search
+                if (file.equals(root_path)) throw e;
+                System.err.println("Skipping " + file + ": " + e);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        if (interrupted[0] != null) throw interrupted[0];
+        return count[0];
+    }
+
+    /**
+     * Lists all matching files under the directory
+     *
+     * @param root - directory to search
+     * @return matching files in the order they were visited
+     * @throws IOException if the root directory cannot be read
+     */
+    public List<File> find(File root) throws IOException {
+        List<File> files = new ArrayList<>();
+        try {
+            walk(root, files::add);
+        } catch (InterruptedException e) {
+            // adding to a list never waits
+            Thread.currentThread().interrupt();
+        }
+        return files;
+    }
+
+    /**
+     * @param relative - path of the file relative to the root directory
+     * @param size     - size of the file in bytes
+     * @return true if the file should be compared
+     */
+    boolean accepts(Path relative, long size) {
+        String name = relative.getFileName().toString();
+        boolean has_extension = false;
+        for (String extension : EXTENSIONS) {
+            if (name.endsWith(extension)) has_extension = true;
+        }
+        if (!has_extension || size < min_size || size > max_size) return false;
+        if (!includes.isEmpty() && !matches(includes, relative)) return false;
+        return !matches(excludes, relative);
+    }
+
+    private static boolean matches(List<PathMatcher> matchers, Path relative) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(relative) || matcher.matches(relative.getFileName())) return true;
+        }
+        return false;
+    }
+
+    private static List<PathMatcher> toMatchers(List<String> globs) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        for (String glob : globs) {
+            matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        }
+        return matchers;
+    }
+}
@@ -0,0 +1,173 @@
+package comparison;
+
+import normalisation.elements.elementContainers.JavaFile;
+import normalisation.util.TokenDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from hashed token k-grams to the files containing them.
+ * Used to generate candidate pairs before the expensive comparison algorithms are run,
+ * only pairs of files sharing enough k-grams are returned so the number of comparisons no longer grows with n^2.
+ * Not thread safe
+ */
+public class KGramIndex implements CandidateIndex {
+
+    // matches the minimum tile length of the string comparison
+    public static final int DEFAULT_K = 5;
+    public static final double DEFAULT_MIN_OVERLAP = 0.1;
+    public static final double DEFAULT_MAX_DOCUMENT_FREQUENCY = 0.5;
+    // k-grams are never ignored while the corpus is smaller than this
+    static final int MIN_STOP_GRAM_FILES = 20;
+
+    private final int k;
+    private final double min_overlap;
+    private final double max_document_frequency;
+    private final Map<Integer, Postings> postings = new HashMap<>();
+    private final List<int[]> file_grams = new ArrayList<>();
+    // shared gram counts per file, reset after every query
+    private int[] shared = new int[0];
+
+    /**
+     * @param k                      - number of tokens in each gram
+     * @param min_overlap            - share of the smaller files distinct grams two files must have in common to be a candidate pair
+     * @param max_document_frequency - grams contained in more than this share of the files are treated as boilerplate and ignored
+     */
+    public KGramIndex(int k, double min_overlap, double max_document_frequency) {
+        this.k = k;
+        this.min_overlap = min_overlap;
+        this.max_document_frequency = max_document_frequency;
+    }
+
+    public KGramIndex() {
+        this(DEFAULT_K, DEFAULT_MIN_OVERLAP, DEFAULT_MAX_DOCUMENT_FREQUENCY);
+    }
+
+    @Override
+    public int add(JavaFile file) {
+        int id = file_grams.size();
+        int[] grams = getGrams(file, k);
+        file_grams.add(grams);
+        for (int gram : grams) {
+            postings.computeIfAbsent(gram, x -> new Postings()).add(id);
+        }
+        return id;
+    }
+
+    /**
+     * Finds the files added before the given file that share enough grams with it
+     *
+     * @param id file id
+     * @return ascending ids of the candidate files, all smaller than id
+     */
+    @Override
+    public int[] candidates(int id) {
+        int[] grams = file_grams.get(id);
+        if (grams.length == 0) return new int[0];
+
+        int max_postings = Math.max(MIN_STOP_GRAM_FILES, (int) (max_document_frequency * file_grams.size()));
+        if (shared.length < id) shared = new int[Math.max(id, shared.length * 2)];
+        int[] touched = new int[16];
+        int touched_count = 0;
+        for (int gram : grams) {
+            Postings p = postings.get(gram);
+            if (p.size > max_postings) continue;
+            // postings are in id order so stop at the first file added after this one
+            for (int i = 0; i < p.size && p.ids[i] < id; i++) {
+                int other = p.ids[i];
+                if (shared[other]++ == 0) {
+                    if (touched_count == touched.length) touched = Arrays.copyOf(touched, touched_count * 2);
+                    touched[touched_count++] = other;
+                }
+            }
+        }
+
+        int[] candidates = new int[touched_count];
+        int count = 0;
+        for (int t = 0; t < touched_count; t++) {
+            int i = touched[t];
+            int smaller = Math.min(grams.length, file_grams.get(i).length);
+            if (shared[i] >= min_overlap * smaller) candidates[count++] = i;
+            shared[i] = 0;
+        }
+        candidates = Arrays.copyOf(candidates, count);
+        Arrays.sort(candidates);
+        return candidates;
+    }
+
+    /**
+     * Generates all candidate pairs between the indexed files
+     *
+     * @return pairs packed as (i << 32 | j) with i < j, sorted in the order a nested loop over the files would visit them
+     */
+    public long[] candidatePairs() {
+        long[] pairs = new long[16];
+        int count = 0;
+        for (int j = 1; j < file_grams.size(); j++) {
+            for (int i : candidates(j)) {
+                if (count == pairs.length) pairs = Arrays.copyOf(pairs, count * 2);
+                pairs[count++] = pack(i, j);
+            }
+        }
+        pairs = Arrays.copyOf(pairs, count);
+        Arrays.sort(pairs);
+        return pairs;
+    }
+
+    @Override
+    public int size() {
+        return file_grams.size();
+    }
+
+    public static long pack(int i, int j) {
+        return ((long) i << 32) | j;
+    }
+
+    public static int first(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    public static int second(long pair) {
+        return (int) pair;
+    }
+
+    /**
+     * Hashes every run of k consecutive tokens. Gram hashes are built from the text hash of each token rather than its id,
+     * so they are the same in every run and can be stored by {@link ReferenceIndex}
+     *
+     * @param file normalised file
+     * @param k    gram length
+     * @return sorted distinct gram hashes
+     */
+    static int[] getGrams(JavaFile file, int k) {
+        int[] tokens = file.getTokens();
+        if (tokens.length < k) return new int[0];
+        TokenDictionary dictionary = file.getTokenDictionary();
+        int[] grams = new int[tokens.length - k + 1];
+        for (int i = 0; i < grams.length; i++) {
+            int hash = 0;
+            for (int j = i; j < i + k; j++) {
+                hash = 31 * hash + dictionary.getHash(tokens[j]);
+            }
+            grams[i] = hash;
+        }
+        return Arrays.stream(grams).sorted().distinct().toArray();
+    }
+
+    /**
+     * Growable list of file ids
+     */
+    static class Postings {
+        int[] ids = new int[4];
+        int size = 0;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+}
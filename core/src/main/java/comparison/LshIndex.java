@@ -0,0 +1,99 @@
+package comparison;
+
+import normalisation.elements.elementContainers.JavaFile;
+import normalisation.util.MinHashSignature;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Locality sensitive hashing of {@link MinHashSignature}s. Each signature is cut into bands of a few slots and every
+ * band is hashed into a bucket, files sharing a bucket in any band are candidate pairs. Two files with Jaccard
+ * similarity s share a band with probability 1 - (1 - s^rows)^bands, so pairs above roughly (1 / bands)^(1 / rows)
+ * are almost always found while dissimilar pairs rarely meet. Looking up a file only touches its own buckets,
+ * so finding the candidates of a corpus takes close to linear time.
+ * More bands find more of the similar pairs, more rows per band return fewer dissimilar ones.
+ * Not thread safe
+ */
+public class LshIndex implements CandidateIndex {
+
+    // finds pairs with an estimated similarity above about 0.5
+    public static final int DEFAULT_BANDS = 16;
+    public static final int DEFAULT_ROWS = 4;
+
+    private final int bands;
+    private final int rows;
+    private final Map<Long, KGramIndex.Postings> buckets = new HashMap<>();
+    private final List<long[]> file_bands = new ArrayList<>();
+    // files already returned for the current query, reset after every query
+    private boolean[] seen = new boolean[0];
+
+    /**
+     * @param bands - number of bands, each is looked up on its own
+     * @param rows  - signature slots in each band
+     * @throws IllegalArgumentException if the bands need more slots than a signature has
+     */
+    public LshIndex(int bands, int rows) {
+        if (bands < 1 || rows < 1 || (long) bands * rows > MinHashSignature.SIZE) {
+            throw new IllegalArgumentException("Bands x rows must be between 1 and " + MinHashSignature.SIZE);
+        }
+        this.bands = bands;
+        this.rows = rows;
+    }
+
+    public LshIndex() {
+        this(DEFAULT_BANDS, DEFAULT_ROWS);
+    }
+
+    @Override
+    public int add(JavaFile file) {
+        int id = file_bands.size();
+        MinHashSignature signature = file.getMinHash();
+        long[] hashes = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            hashes[band] = signature.bandHash(band, rows);
+            buckets.computeIfAbsent(hashes[band], x -> new KGramIndex.Postings()).add(id);
+        }
+        file_bands.add(hashes);
+        return id;
+    }
+
+    @Override
+    public int[] candidates(int id) {
+        if (seen.length < id) seen = new boolean[Math.max(id, seen.length * 2)];
+        int[] candidates = new int[16];
+        int count = 0;
+        for (long hash : file_bands.get(id)) {
+            KGramIndex.Postings p = buckets.get(hash);
+            // postings are in id order so stop at the first file added after this one
+            for (int i = 0; i < p.size && p.ids[i] < id; i++) {
+                int other = p.ids[i];
+                if (seen[other]) continue;
+                seen[other] = true;
+                if (count == candidates.length) candidates = Arrays.copyOf(candidates, count * 2);
+                candidates[count++] = other;
+            }
+        }
+
+        candidates = Arrays.copyOf(candidates, count);
+        for (int other : candidates) seen[other] = false;
+        Arrays.sort(candidates);
+        return candidates;
+    }
+
+    @Override
+    public int size() {
+        return file_bands.size();
+    }
+
+    /**
+     * @param similarity - Jaccard similarity of two files
+     * @return probability the files share at least one band and are returned as a candidate pair
+     */
+    public double probability(double similarity) {
+        return 1 - Math.pow(1 - Math.pow(similarity, rows), bands);
+    }
+}
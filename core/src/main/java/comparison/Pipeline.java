@@ -0,0 +1,443 @@
+package comparison;
+
+import comparison.algorithms.Cancellation;
+import comparison.algorithms.CancelledException;
+import comparison.algorithms.ComparisonAlgorithm;
+import normalisation.Normaliser;
+import normalisation.Normaliser.Features;
+import normalisation.elements.elementContainers.JavaFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs the detection as a set of concurrent stages connected by bounded queues:
+ * discovery -> read -> parse -> normalise -> index/compare.
+ * Each file is compared with the files before it as soon as it is normalised, so disk access, parsing and comparison overlap.
+ * A full queue blocks the stage feeding it, so no stage gets more than a few files ahead of the next.
+ * Files are numbered in discovery order and reach the compare stage in that order, so results do not depend on thread timing.
+ * Algorithms whose scores depend on the whole run ({@link ComparisonAlgorithm#dependsOnCorpus()}) only start comparing once
+ * every file is prepared, and their scores are never cached.
+ * Once the run's {@link Cancellation} is set every stage stops doing work and passes its remaining items straight on,
+ * so the run ends quickly with the comparisons finished so far and the collector marked as partial
+ */
+public class Pipeline {
+
+    private static final int QUEUE_CAPACITY = 64;
+    // row comparisons that may be waiting on the worker pool before the compare stage blocks
+    private static final int ROWS_PER_THREAD = 4;
+
+    private final EnumSet<Features> enabled_features;
+    private final Supplier<? extends ComparisonAlgorithm> algorithm;
+    private final int threads;
+    private final Supplier<? extends CandidateIndex> candidate_index;
+    private final File cache_dir;
+    private final FileDiscovery discovery;
+
+    /**
+     * @param enabled_features - normalisation features to apply to every file
+     * @param algorithm        - creates instances of the comparison algorithm, one per comparison thread
+     * @param threads          - number of comparison threads, parsing and normalisation use half as many each
+     * @param candidate_index  - creates the index choosing which pairs of input files are compared, null to compare every pair
+     * @param cache_dir        - directory of the {@link ResultCache} used to skip pairs compared in previous runs, null for no cache,
+     *                           ignored by algorithms depending on the whole run
+     * @param discovery        - selects the files to compare from the input directory
+     */
+    public Pipeline(EnumSet<Features> enabled_features, Supplier<? extends ComparisonAlgorithm> algorithm, int threads,
+                    Supplier<? extends CandidateIndex> candidate_index, File cache_dir, FileDiscovery discovery) {
+        this.enabled_features = enabled_features;
+        this.algorithm = algorithm;
+        this.threads = Math.max(1, threads);
+        this.candidate_index = candidate_index;
+        this.cache_dir = cache_dir;
+        this.discovery = discovery;
+    }
+
+    /**
+     * @param prefilter - only compare pairs of files found to share enough k-grams by a {@link KGramIndex}
+     */
+    public Pipeline(EnumSet<Features> enabled_features, Supplier<? extends ComparisonAlgorithm> algorithm, int threads,
+                    boolean prefilter, File cache_dir, FileDiscovery discovery) {
+        this(enabled_features, algorithm, threads, prefilter ? KGramIndex::new : null, cache_dir, discovery);
+    }
+
+    public Pipeline(EnumSet<Features> enabled_features, Supplier<? extends ComparisonAlgorithm> algorithm, int threads,
+                    boolean prefilter, File cache_dir) {
+        this(enabled_features, algorithm, threads, prefilter, cache_dir, new FileDiscovery());
+    }
+
+    public Pipeline(EnumSet<Features> enabled_features, Supplier<? extends ComparisonAlgorithm> algorithm, int threads, boolean prefilter) {
+        this(enabled_features, algorithm, threads, prefilter, null);
+    }
+
+    /**
+     * Listener notified as the pipeline progresses, methods may be called from any thread
+     */
+    public interface Listener {
+
+        /**
+         * Called once all input files are found
+         *
+         * @param count number of files to be parsed
+         */
+        default void filesDiscovered(int count) {
+        }
+
+        /**
+         * Called after a file is read from disk
+         *
+         * @param file file read
+         */
+        default void fileRead(File file) {
+        }
+
+        /**
+         * Called after a file is parsed
+         *
+         * @param file parsed file
+         */
+        default void fileParsed(JavaFile file) {
+        }
+
+        /**
+         * Called after a file is normalised
+         *
+         * @param file normalised file
+         */
+        default void fileNormalised(JavaFile file) {
+        }
+
+        /**
+         * Called after the hashes and other data compared for a file are built, right after it is normalised
+         *
+         * @param file  normalised file
+         * @param nanos time spent building them
+         */
+        default void filePrepared(JavaFile file, long nanos) {
+        }
+
+        /**
+         * Called after each pair of files is compared
+         */
+        default void pairCompared() {
+        }
+
+        /**
+         * Called once every file has reached the compare stage
+         *
+         * @param count number of pairs to be compared, fewer than all pairs when prefiltering or stopped early
+         */
+        default void pairsScheduled(long count) {
+        }
+    }
+
+    /**
+     * Finds, parses, normalises and compares all files in the input directory
+     *
+     * @param input_dir - directory containing the files to be compared
+     * @param collector - receives the comparisons
+     * @param listener  - notified of progress
+     * @throws InterruptedException if interrupted while waiting on a stage
+     * @throws IOException          if the cache cannot be opened
+     */
+    public void run(File input_dir, ResultCollector collector, Listener listener) throws InterruptedException, IOException {
+        run(input_dir, collector, listener, new Cancellation());
+    }
+
+    /**
+     * Finds, parses, normalises and compares the files in the input directory until finished or stopped
+     *
+     * @param input_dir    - directory containing the files to be compared
+     * @param collector    - receives the comparisons, marked as partial if the run is stopped before comparing every pair
+     * @param listener     - notified of progress
+     * @param cancellation - stops the run early when set
+     * @throws InterruptedException if interrupted while waiting on a stage
+     * @throws IOException          if the cache cannot be opened
+     */
+    public void run(File input_dir, ResultCollector collector, Listener listener, Cancellation cancellation)
+            throws InterruptedException, IOException {
+        run(input_dir, null, collector, listener, cancellation);
+    }
+
+    /**
+     * Finds, parses, normalises and compares the files in the input directory with each other
+     * and with the candidate files from an archive, archived files are not compared with each other
+     *
+     * @param input_dir    - directory containing the files to be compared
+     * @param reference    - archive to check the files against, null to only compare the input files
+     * @param collector    - receives the comparisons, marked as partial if the run is stopped before comparing every pair
+     * @param listener     - notified of progress
+     * @param cancellation - stops the run early when set
+     * @throws InterruptedException if interrupted while waiting on a stage
+     * @throws IOException          if the cache cannot be opened
+     */
+    public void run(File input_dir, ReferenceIndex reference, ResultCollector collector, Listener listener, Cancellation cancellation)
+            throws InterruptedException, IOException {
+        if (reference != null && !reference.getFeatures().equals(enabled_features)) {
+            throw new IllegalArgumentException("Archive was built with features " + reference.getFeatures());
+        }
+        BlockingQueue<Item> discovered = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Item> read = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Item> parsed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Item> normalised = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        int stage_threads = Math.max(1, threads / 2);
+        ComparisonAlgorithm probe = algorithm.get();
+        // a score depending on the whole run would be reused by runs over other files
+        boolean whole_run = probe.dependsOnCorpus();
+        ResultCache cache = cache_dir == null || whole_run ? null : new ResultCache(cache_dir, enabled_features, probe.getId());
+        ExecutorService stages = Executors.newFixedThreadPool(2 + 2 * stage_threads);
+        ComparisonEngine engine = new ComparisonEngine(algorithm, threads, cache, cancellation);
+        Normaliser normaliser = new Normaliser(enabled_features);
+        try {
+            stages.submit(() -> discover(input_dir, discovered, listener, cancellation, collector));
+            startStage(stages, 1, cancellation, discovered, read, item -> {
+                item.lines = Files.readAllLines(item.file.toPath());
+                listener.fileRead(item.file);
+            });
+            startStage(stages, stage_threads, cancellation, read, parsed, item -> {
+                item.java_file = new JavaFile(item.file, item.lines);
+                item.lines = null;
+                listener.fileParsed(item.java_file);
+            });
+            startStage(stages, stage_threads, cancellation, parsed, normalised, item -> {
+                normaliser.normaliseFile(item.java_file);
+                long prepare_time = engine.prepareFile(item.java_file);
+                listener.fileNormalised(item.java_file);
+                listener.filePrepared(item.java_file, prepare_time);
+            });
+            compare(normalised, engine, reference, normaliser, collector, listener, cancellation, whole_run);
+        } finally {
+            stages.shutdownNow();
+            engine.shutdown();
+            if (cache != null) cache.close();
+        }
+    }
+
+    /**
+     * Discovery stage, passes on each java and text file as soon as it is found so reading starts while the tree is still being walked.
+     * A directory that cannot be read marks the results as partial
+     */
+    private void discover(File input_dir, BlockingQueue<Item> out, Listener listener, Cancellation cancellation,
+                          ResultCollector collector) {
+        int[] count = {0};
+        try {
+            discovery.walk(input_dir, file -> {
+                cancellation.check();
+                out.put(new Item(count[0]++, file));
+            });
+        } catch (CancelledException e) {
+            collector.markPartial(e.getReason());
+        } catch (IOException e) {
+            // the files found so far are still compared, but the results are missing the rest
+            System.err.println("Discovery stopped: " + e);
+            collector.markPartial(Cancellation.Reason.DISCOVERY_FAILED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            listener.filesDiscovered(count[0]);
+            putPoison(out);
+        }
+    }
+
+    /**
+     * Starts the workers of a stage, each takes items from the input queue, processes them and passes them on.
+     * Items that fail, or arrive once the run is stopped, are passed on marked as failed so later stages keep the file order
+     */
+    private static void startStage(ExecutorService executor, int workers, Cancellation cancellation, BlockingQueue<Item> in,
+                                   BlockingQueue<Item> out, Stage stage) {
+        AtomicInteger running = new AtomicInteger(workers);
+        for (int i = 0; i < workers; i++) {
+            executor.submit(() -> {
+                try {
+                    while (true) {
+                        Item item = in.take();
+                        if (item == Item.POISON) {
+                            // leave the poison for the other workers of this stage
+                            in.put(item);
+                            break;
+                        }
+                        if (!item.failed && cancellation.isCancelled()) item.failed = true;
+                        if (!item.failed) {
+                            try {
+                                stage.process(item);
+                            } catch (Exception e) {
+                                System.err.println("Skipping " + item.file + ": " + e);
+                                item.failed = true;
+                            }
+                        }
+                        out.put(item);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (running.decrementAndGet() == 0) putPoison(out);
+                }
+            });
+        }
+    }
+
+    /**
+     * Compare stage, puts the normalised files back into discovery order and starts comparing each one with the files before it
+     * and with its candidates from the archive. Archived files are parsed the first time they are a candidate
+     * and numbered after the input files seen so far
+     *
+     * @param whole_run - hold every row back until all files are prepared, for algorithms depending on the whole run
+     */
+    private void compare(BlockingQueue<Item> in, ComparisonEngine engine, ReferenceIndex reference, Normaliser normaliser,
+                         ResultCollector collector, Listener listener, Cancellation cancellation, boolean whole_run)
+            throws InterruptedException {
+        PriorityQueue<Item> waiting = new PriorityQueue<>(Comparator.comparingInt((Item item) -> item.sequence));
+        int max_rows = threads * ROWS_PER_THREAD;
+        Semaphore row_permits = new Semaphore(max_rows);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CandidateIndex index = candidate_index == null ? null : candidate_index.get();
+        JavaFile[] files = new JavaFile[QUEUE_CAPACITY];
+        int file_count = 0;
+        // ids of the input files, in the order they were added to the candidate index
+        int[] inputs = new int[QUEUE_CAPACITY];
+        int input_count = 0;
+        // ids given to archived files, -1 for those that could not be parsed
+        Map<Integer, Integer> archived_ids = new HashMap<>();
+        int next_sequence = 0;
+        long scheduled = 0;
+        List<long[]> held_rows = new ArrayList<>();
+
+        while (true) {
+            Item item = in.take();
+            if (item == Item.POISON) break;
+            waiting.add(item);
+
+            while (!waiting.isEmpty() && waiting.peek().sequence == next_sequence) {
+                Item next = waiting.poll();
+                next_sequence++;
+                if (cancellation.isCancelled()) {
+                    // the file is not compared with the earlier ones
+                    collector.markPartial(cancellation.getReason());
+                    continue;
+                }
+                if (next.failed) continue;
+
+                int id = file_count++;
+                if (id == files.length) files = Arrays.copyOf(files, id * 2);
+                files[id] = next.java_file;
+                if (input_count == inputs.length) inputs = Arrays.copyOf(inputs, input_count * 2);
+                inputs[input_count++] = id;
+
+                long[] pairs;
+                if (index != null) {
+                    int[] candidates = index.candidates(index.add(next.java_file));
+                    pairs = new long[candidates.length];
+                    for (int i = 0; i < candidates.length; i++) pairs[i] = KGramIndex.pack(inputs[candidates[i]], id);
+                } else {
+                    pairs = new long[input_count - 1];
+                    for (int i = 0; i < input_count - 1; i++) pairs[i] = KGramIndex.pack(inputs[i], id);
+                }
+
+                if (reference != null) {
+                    int[] candidates = reference.candidates(next.java_file);
+                    int count = pairs.length;
+                    pairs = Arrays.copyOf(pairs, count + candidates.length);
+                    for (int entry : candidates) {
+                        Integer archived_id = archived_ids.get(entry);
+                        if (archived_id == null) {
+                            archived_id = -1;
+                            try {
+                                JavaFile archived = reference.load(entry, normaliser);
+                                engine.prepareFile(archived);
+                                archived_id = file_count++;
+                                if (archived_id == files.length) files = Arrays.copyOf(files, archived_id * 2);
+                                files[archived_id] = archived;
+                            } catch (Exception e) {
+                                System.err.println("Skipping archived file " + entry + ": " + e);
+                            }
+                            archived_ids.put(entry, archived_id);
+                        }
+                        if (archived_id >= 0) {
+                            pairs[count++] = KGramIndex.pack(Math.min(id, archived_id), Math.max(id, archived_id));
+                        }
+                    }
+                    pairs = Arrays.copyOf(pairs, count);
+                }
+                if (pairs.length == 0) continue;
+
+                scheduled += pairs.length;
+                if (whole_run) held_rows.add(pairs);
+                else submitRow(engine, files, pairs, collector, listener, row_permits, error);
+            }
+        }
+
+        listener.pairsScheduled(scheduled);
+        // the input files were prepared by the normalise stage and the archived ones above, so all are counted now
+        for (long[] pairs : held_rows) submitRow(engine, files, pairs, collector, listener, row_permits, error);
+
+        // wait for the remaining rows to finish
+        row_permits.acquire(max_rows);
+        if (error.get() != null) throw new IllegalStateException("Comparison failed", error.get());
+    }
+
+    /**
+     * Starts comparing a row once fewer than the maximum number of rows are waiting on the workers
+     */
+    private static void submitRow(ComparisonEngine engine, JavaFile[] files, long[] pairs, ResultCollector collector,
+                                  Listener listener, Semaphore row_permits, AtomicReference<Throwable> error)
+            throws InterruptedException {
+        row_permits.acquire();
+        // entries already added never change, so the current array can be shared with the workers
+        engine.submit(Arrays.asList(files), pairs, collector, listener::pairCompared)
+                .whenComplete((result, e) -> {
+                    if (e != null) error.compareAndSet(null, e);
+                    row_permits.release();
+                });
+    }
+
+    /**
+     * Interface for the work done by a stage on each item
+     */
+    private interface Stage {
+        void process(Item item) throws Exception;
+    }
+
+    /**
+     * File travelling through the pipeline
+     */
+    private static class Item {
+        private static final Item POISON = new Item(-1, null);
+
+        private final int sequence;
+        private final File file;
+        private List<String> lines;
+        private JavaFile java_file;
+        private boolean failed = false;
+
+        Item(int sequence, File file) {
+            this.sequence = sequence;
+            this.file = file;
+        }
+    }
+
+    private static void putPoison(BlockingQueue<Item> queue) {
+        try {
+            queue.put(Item.POISON);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package comparison;
+
+import normalisation.elements.elementContainers.JavaFile;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the progress of a pipeline run. Workers only increment striped counters, which is cheap from any number of threads,
+ * and a single timer thread reads them at a fixed rate and publishes a {@link Snapshot}, so the cost of reporting
+ * does not grow with the number of pairs
+ */
+public class Progress implements Pipeline.Listener {
+
+    // weight of the latest interval in the smoothed comparison rate
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private final LongAdder read = new LongAdder();
+    private final LongAdder parsed = new LongAdder();
+    private final LongAdder normalised = new LongAdder();
+    private final LongAdder compared = new LongAdder();
+    private final LongAdder prepare_time = new LongAdder();
+    private volatile int total_files = -1;
+    private volatile long total_pairs = -1;
+
+    private final long start_time = System.nanoTime();
+    private ScheduledExecutorService timer;
+    private Consumer<Snapshot> publisher;
+    private Snapshot last;
+
+    @Override
+    public void filesDiscovered(int count) {
+        total_files = count;
+    }
+
+    @Override
+    public void fileRead(File file) {
+        read.increment();
+    }
+
+    @Override
+    public void fileParsed(JavaFile file) {
+        parsed.increment();
+    }
+
+    @Override
+    public void fileNormalised(JavaFile file) {
+        normalised.increment();
+    }
+
+    @Override
+    public void filePrepared(JavaFile file, long nanos) {
+        prepare_time.add(nanos);
+    }
+
+    @Override
+    public void pairCompared() {
+        compared.increment();
+    }
+
+    @Override
+    public void pairsScheduled(long count) {
+        total_pairs = count;
+    }
+
+    /**
+     * Starts publishing snapshots at a fixed rate on a background thread
+     *
+     * @param publisher - receives each snapshot, called from the timer thread
+     * @param period_ms - time between snapshots in milliseconds
+     */
+    public synchronized void start(Consumer<Snapshot> publisher, long period_ms) {
+        this.publisher = publisher;
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::publish, period_ms, period_ms, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the timer and publishes a final snapshot
+     */
+    public synchronized void stop() {
+        if (timer == null) return;
+        timer.shutdownNow();
+        timer = null;
+        publisher.accept(snapshot());
+    }
+
+    private synchronized void publish() {
+        if (timer != null) publisher.accept(snapshot());
+    }
+
+    /**
+     * Reads the counters, rates are measured since the previous snapshot
+     *
+     * @return current progress
+     */
+    public synchronized Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot(System.nanoTime() - start_time, total_files, total_pairs,
+                read.sum(), parsed.sum(), normalised.sum(), compared.sum(), prepare_time.sum(), last);
+        last = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Progress of the run at one point in time
+     */
+    public static class Snapshot {
+        private final long elapsed;
+        private final int total_files;
+        private final long total_pairs;
+        private final long read;
+        private final long parsed;
+        private final long normalised;
+        private final long compared;
+        private final long prepare_time;
+        private final double read_rate;
+        private final double parse_rate;
+        private final double normalise_rate;
+        private final double compare_rate;
+        private final double smoothed_compare_rate;
+
+        Snapshot(long elapsed, int total_files, long total_pairs, long read, long parsed, long normalised, long compared,
+                 long prepare_time, Snapshot previous) {
+            this.elapsed = elapsed;
+            this.total_files = total_files;
+            this.total_pairs = total_pairs;
+            this.read = read;
+            this.parsed = parsed;
+            this.normalised = normalised;
+            this.compared = compared;
+            this.prepare_time = prepare_time;
+
+            long since = previous == null ? 0 : previous.elapsed;
+            double seconds = Math.max(1e-9, (elapsed - since) / 1e9);
+            this.read_rate = (read - (previous == null ? 0 : previous.read)) / seconds;
+            this.parse_rate = (parsed - (previous == null ? 0 : previous.parsed)) / seconds;
+            this.normalise_rate = (normalised - (previous == null ? 0 : previous.normalised)) / seconds;
+            this.compare_rate = (compared - (previous == null ? 0 : previous.compared)) / seconds;
+            this.smoothed_compare_rate = previous == null || previous.smoothed_compare_rate == 0 ? compare_rate
+                    : RATE_SMOOTHING * compare_rate + (1 - RATE_SMOOTHING) * previous.smoothed_compare_rate;
+        }
+
+        /**
+         * @return number of files found, -1 while still searching
+         */
+        public int getTotalFiles() {
+            return total_files;
+        }
+
+        /**
+         * Pairs to compare, exact once every file has been indexed and until then the all-pairs count as an upper bound
+         *
+         * @return number of pairs, -1 while still searching for files
+         */
+        public long getTotalPairs() {
+            if (total_pairs >= 0) return total_pairs;
+            return total_files < 0 ? -1 : ComparisonEngine.pairCount(total_files);
+        }
+
+        public long getNormalised() {
+            return normalised;
+        }
+
+        public long getCompared() {
+            return compared;
+        }
+
+        /**
+         * @return seconds since the run started
+         */
+        public double getElapsedSeconds() {
+            return elapsed / 1e9;
+        }
+
+        /**
+         * @return seconds spent building the hashes compared for each file, summed over all threads
+         */
+        public double getPrepareSeconds() {
+            return prepare_time / 1e9;
+        }
+
+        /**
+         * @return pairs compared per second since the previous snapshot
+         */
+        public double getPairsPerSecond() {
+            return compare_rate;
+        }
+
+        /**
+         * @return estimated seconds until every pair is compared, -1 if unknown
+         */
+        public double getEtaSeconds() {
+            long total = getTotalPairs();
+            if (total >= 0 && compared >= total) return 0;
+            if (total < 0 || smoothed_compare_rate <= 0) return -1;
+            return (total - compared) / smoothed_compare_rate;
+        }
+
+        /**
+         * Fraction of the run done, normalisation is the first half and comparison the second
+         *
+         * @return value between 0 and 1
+         */
+        public double getFraction() {
+            if (total_files <= 0) return 0;
+            double pairs = Math.max(1, getTotalPairs());
+            return Math.min(1, 0.5 * normalised / total_files + 0.5 * Math.min(1, compared / pairs));
+        }
+
+        /**
+         * @return throughput of each stage since the previous snapshot
+         */
+        public String getStageRates() {
+            return String.format("read %.0f/s, parse %.0f/s, normalise %.0f/s, compare %.0f pairs/s",
+                    read_rate, parse_rate, normalise_rate, compare_rate);
+        }
+
+        @Override
+        public String toString() {
+            String files = total_files < 0 ? normalised + "/?" : normalised + "/" + total_files;
+            long total = getTotalPairs();
+            String pairs = total < 0 ? compared + "/?" : compared + "/" + total;
+            double eta = getEtaSeconds();
+            return String.format("Files %s, pairs %s (%.0f pairs/s), ETA %s", files, pairs, compare_rate,
+                    eta < 0 ? "?" : formatSeconds(eta));
+        }
+
+        private static String formatSeconds(double seconds) {
+            long s = Math.round(seconds);
+            if (s < 60) return s + "s";
+            if (s < 3600) return (s / 60) + "m " + (s % 60) + "s";
+            return (s / 3600) + "h " + (s % 3600 / 60) + "m";
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package comparison;
+
+import normalisation.Normaliser;
+import normalisation.Normaliser.Features;
+import normalisation.elements.elementContainers.JavaFile;
+import normalisation.util.TokenDictionary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Persistent index of archived files that new submissions are checked against without comparing the archive with itself.
+ * For every archived file the index keeps the k-gram hashes of its normalised form, used to find candidate files by lookup,
+ * and its original content, parsed again only when the file turns out to be a candidate.
+ * The index is stored in a directory as two append only files, so archiving another corpus adds to it rather than rebuilding it.
+ * The normalisation features are fixed when the index is created as the k-grams depend on them.
+ * Safe to use from multiple threads
+ */
+public class ReferenceIndex implements Closeable {
+
+    private static final int MAGIC = 0x5348_5249;
+    // magic, feature mask and k
+    private static final int HEADER_SIZE = 4 + 8 + 4;
+    private static final String INDEX_FILE = "index.dat";
+    private static final String SOURCE_FILE = "sources.dat";
+    // files archived together before being written, the ones in a batch are parsed in parallel
+    private static final int BATCH_PER_THREAD = 8;
+
+    private final File index_file;
+    private final EnumSet<Features> features;
+    private final int k;
+    private final double min_overlap;
+    private final double max_document_frequency;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<Integer, KGramIndex.Postings> postings = new HashMap<>();
+    private final Set<ByteBuffer> contents = new HashSet<>();
+    private final DataOutputStream index_out;
+    private final RandomAccessFile sources;
+    // shared gram counts per entry, reset after every query
+    private int[] shared = new int[0];
+
+    /**
+     * Opens the index in the given directory, creating it if missing
+     *
+     * @param index_dir - directory holding the index files
+     * @param features  - normalisation features applied to archived and new files, must match those the index was created with
+     * @throws IOException if the index cannot be read or written, or was created with different features
+     */
+    public ReferenceIndex(File index_dir, EnumSet<Features> features) throws IOException {
+        if (!index_dir.isDirectory() && !index_dir.mkdirs()) throw new IOException("Cannot create " + index_dir);
+        this.index_file = new File(index_dir, INDEX_FILE);
+        this.features = EnumSet.copyOf(features);
+        this.k = KGramIndex.DEFAULT_K;
+        this.min_overlap = KGramIndex.DEFAULT_MIN_OVERLAP;
+        this.max_document_frequency = KGramIndex.DEFAULT_MAX_DOCUMENT_FREQUENCY;
+
+        boolean exists = index_file.isFile() && index_file.length() >= HEADER_SIZE;
+        if (exists) load();
+        index_out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(index_file, exists)));
+        if (!exists) {
+            index_out.writeInt(MAGIC);
+            index_out.writeLong(featureMask(features));
+            index_out.writeInt(k);
+            index_out.flush();
+        }
+        sources = new RandomAccessFile(new File(index_dir, SOURCE_FILE), "rw");
+    }
+
+    /**
+     * Reads all complete entries, a partly written last entry is removed
+     */
+    private void load() throws IOException {
+        long valid_length = HEADER_SIZE;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index_file)))) {
+            if (in.readInt() != MAGIC) throw new IOException(index_file + " is not a reference index");
+            if (in.readLong() != featureMask(features) || in.readInt() != k) {
+                throw new IOException(index_file + " was built with different normalisation features");
+            }
+            while (true) {
+                int record_length = in.readInt();
+                if (record_length < 0 || valid_length + 4 + record_length > index_file.length()) break;
+                byte[] record = new byte[record_length];
+                in.readFully(record);
+                DataInputStream entry = new DataInputStream(new ByteArrayInputStream(record));
+                String path = entry.readUTF();
+                String corpus = entry.readUTF();
+                byte[] hash = new byte[16];
+                entry.readFully(hash);
+                long source_offset = entry.readLong();
+                int source_length = entry.readInt();
+                int[] grams = new int[entry.readInt()];
+                for (int i = 0; i < grams.length; i++) grams[i] = entry.readInt();
+
+                addEntry(new Entry(path, corpus, hash, source_offset, source_length, grams.length), grams);
+                valid_length += 4 + record.length;
+            }
+        } catch (EOFException e) {
+            // end of the last complete entry
+        }
+
+        if (index_file.length() > valid_length) {
+            try (RandomAccessFile file = new RandomAccessFile(index_file, "rw")) {
+                file.setLength(valid_length);
+            }
+        }
+    }
+
+    /**
+     * Archives every java and text file in a directory, files already in the index are skipped
+     *
+     * @param dir       - directory containing the corpus
+     * @param corpus    - name the files are archived under, e.g. the year
+     * @param discovery - selects the files to archive
+     * @param threads   - number of threads parsing and normalising files
+     * @return number of files added
+     * @throws IOException          if the directory cannot be searched or the index cannot be written
+     * @throws InterruptedException if interrupted while files are being parsed
+     */
+    public int addCorpus(File dir, String corpus, FileDiscovery discovery, int threads) throws IOException, InterruptedException {
+        Normaliser normaliser = new Normaliser(features);
+        // only the token hashes are stored, so the ids of this call are not kept
+        TokenDictionary dictionary = new TokenDictionary();
+        List<File> files = discovery.find(dir);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        int batch_size = Math.max(1, threads) * BATCH_PER_THREAD;
+        int added = 0;
+        try {
+            for (int start = 0; start < files.size(); start += batch_size) {
+                List<Future<Prepared>> batch = new ArrayList<>();
+                for (File file : files.subList(start, Math.min(files.size(), start + batch_size))) {
+                    batch.add(executor.submit(() -> prepare(file, normaliser, dictionary)));
+                }
+                // added in discovery order so the index does not depend on thread timing
+                for (Future<Prepared> future : batch) {
+                    Prepared prepared;
+                    try {
+                        prepared = future.get();
+                    } catch (ExecutionException e) {
+                        System.err.println("Skipping file: " + e.getCause());
+                        continue;
+                    }
+                    if (add(prepared.file, prepared.lines, prepared.java_file, corpus)) added++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return added;
+    }
+
+    private static Prepared prepare(File file, Normaliser normaliser, TokenDictionary dictionary) throws Exception {
+        List<String> lines = Files.readAllLines(file.toPath());
+        // parsing modifies the lines
+        JavaFile java_file = new JavaFile(file, new ArrayList<>(lines));
+        normaliser.normaliseFile(java_file);
+        java_file.setTokenDictionary(dictionary);
+        return new Prepared(file, lines, java_file);
+    }
+
+    /**
+     * Archives a file
+     *
+     * @param file       - archived file
+     * @param raw_lines  - original lines of the file, before parsing
+     * @param normalised - parsed file, normalised with the features of the index
+     * @param corpus     - name the file is archived under
+     * @return false if a file with the same content is already archived
+     * @throws IOException if the index cannot be written
+     */
+    public synchronized boolean add(File file, List<String> raw_lines, JavaFile normalised, String corpus) throws IOException {
+        byte[] hash = Arrays.copyOf(normalised.getContentHash(), 16);
+        if (contents.contains(ByteBuffer.wrap(hash))) return false;
+
+        byte[] source = String.join("\n", raw_lines).getBytes(StandardCharsets.UTF_8);
+        long source_offset = sources.length();
+        sources.seek(source_offset);
+        sources.writeInt(raw_lines.size());
+        sources.write(source);
+
+        int[] grams = KGramIndex.getGrams(normalised, k);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeUTF(file.getPath());
+        record.writeUTF(corpus);
+        record.write(hash);
+        record.writeLong(source_offset);
+        record.writeInt(source.length);
+        record.writeInt(grams.length);
+        for (int gram : grams) record.writeInt(gram);
+        // records are length prefixed so a partly written one can be found and removed
+        index_out.writeInt(bytes.size());
+        bytes.writeTo(index_out);
+        index_out.flush();
+
+        addEntry(new Entry(file.getPath(), corpus, hash, source_offset, source.length, grams.length), grams);
+        return true;
+    }
+
+    private void addEntry(Entry entry, int[] grams) {
+        int id = entries.size();
+        entries.add(entry);
+        contents.add(ByteBuffer.wrap(entry.hash));
+        for (int gram : grams) {
+            postings.computeIfAbsent(gram, x -> new KGramIndex.Postings()).add(id);
+        }
+    }
+
+    /**
+     * Finds the archived files sharing enough k-grams with a new file, using the same rule as {@link KGramIndex}
+     *
+     * @param file normalised file
+     * @return ascending ids of the candidate archived files
+     */
+    public synchronized int[] candidates(JavaFile file) {
+        int[] grams = KGramIndex.getGrams(file, k);
+        if (grams.length == 0 || entries.isEmpty()) return new int[0];
+
+        int max_postings = Math.max(KGramIndex.MIN_STOP_GRAM_FILES, (int) (max_document_frequency * entries.size()));
+        if (shared.length < entries.size()) shared = new int[entries.size()];
+        int[] touched = new int[16];
+        int touched_count = 0;
+        for (int gram : grams) {
+            KGramIndex.Postings p = postings.get(gram);
+            if (p == null || p.size > max_postings) continue;
+            for (int i = 0; i < p.size; i++) {
+                int other = p.ids[i];
+                if (shared[other]++ == 0) {
+                    if (touched_count == touched.length) touched = Arrays.copyOf(touched, touched_count * 2);
+                    touched[touched_count++] = other;
+                }
+            }
+        }
+
+        int[] candidates = new int[touched_count];
+        int count = 0;
+        for (int t = 0; t < touched_count; t++) {
+            int i = touched[t];
+            int smaller = Math.min(grams.length, entries.get(i).gram_count);
+            if (shared[i] >= min_overlap * smaller) candidates[count++] = i;
+            shared[i] = 0;
+        }
+        candidates = Arrays.copyOf(candidates, count);
+        Arrays.sort(candidates);
+        return candidates;
+    }
+
+    /**
+     * Parses and normalises an archived file from its stored content
+     *
+     * @param id         - id of the archived file
+     * @param normaliser - normaliser using the features of the index
+     * @return normalised file, to pass to {@link ComparisonEngine#prepareFile(JavaFile)} before comparing it
+     * @throws Exception if the content cannot be read or parsed
+     */
+    public JavaFile load(int id, Normaliser normaliser) throws Exception {
+        Entry entry;
+        int line_count;
+        byte[] source;
+        synchronized (this) {
+            entry = entries.get(id);
+            source = new byte[entry.source_length];
+            sources.seek(entry.source_offset);
+            line_count = sources.readInt();
+            sources.readFully(source);
+        }
+        List<String> lines = new ArrayList<>(line_count);
+        if (line_count > 0) lines.addAll(Arrays.asList(new String(source, StandardCharsets.UTF_8).split("\n", -1)));
+
+        JavaFile file = new JavaFile(new File(entry.path), lines);
+        normaliser.normaliseFile(file);
+        return file;
+    }
+
+    /**
+     * @param id id of the archived file
+     * @return name of the corpus the file was archived under
+     */
+    public synchronized String getCorpus(int id) {
+        return entries.get(id).corpus;
+    }
+
+    public EnumSet<Features> getFeatures() {
+        return EnumSet.copyOf(features);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        index_out.close();
+        sources.close();
+    }
+
+    private static long featureMask(EnumSet<Features> features) {
+        long feature_mask = 0;
+        for (Features feature : features) feature_mask |= 1L << feature.ordinal();
+        return feature_mask;
+    }
+
+    /**
+     * Archived file, only what is needed for lookups is kept in memory
+     */
+    private static class Entry {
+        private final String path;
+        private final String corpus;
+        private final byte[] hash;
+        private final long source_offset;
+        private final int source_length;
+        private final int gram_count;
+
+        Entry(String path, String corpus, byte[] hash, long source_offset, int source_length, int gram_count) {
+            this.path = path;
+            this.corpus = corpus;
+            this.hash = hash;
+            this.source_offset = source_offset;
+            this.source_length = source_length;
+            this.gram_count = gram_count;
+        }
+    }
+
+    /**
+     * File parsed and normalised ready to be archived
+     */
+    private static class Prepared {
+        private final File file;
+        private final List<String> lines;
+        private final JavaFile java_file;
+
+        Prepared(File file, List<String> lines, JavaFile java_file) {
+            this.file = file;
+            this.lines = lines;
+            this.java_file = java_file;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package comparison;
+
+import comparison.resultObjects.FileComparison;
+import comparison.resultObjects.MethodComparison;
+import comparison.resultObjects.MethodMatch;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Writes comparison results to files
+ */
+public class ReportWriter {
+
+    // characters Windows does not allow in file names
+    private static final String RESERVED = "<>:\"/\\|?*";
+    // bytes of the path hash in report names, enough to tell apart the pairs of a run
+    private static final int REPORT_HASH_BYTES = 6;
+
+    /**
+     * Writes the report for a single file comparison to a text file named by {@link #reportName(FileComparison)}
+     *
+     * @param comparison - comparison to write
+     * @param output_dir - directory to write the report to
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeComparison(FileComparison comparison, File output_dir) throws IOException {
+        List<MethodComparison> method_comparisons = comparison.getMethod_comparisons();
+        StringBuilder sb = new StringBuilder();
+        sb.append(comparison.getName() + "\n");
+        sb.append("Algorithm score --> " + comparison.getScore() + "%\n\n");
+        for (MethodComparison method_comparison : method_comparisons) {
+            sb.append(method_comparison.getReport() + "\n");
+        }
+
+        try (FileOutputStream out = new FileOutputStream(new File(output_dir, reportName(comparison)))) {
+            out.write(sb.toString().getBytes());
+        }
+    }
+
+    /**
+     * Names the report of a comparison after the names of both files, followed by a hash of their paths as files with the
+     * same name from different directories would otherwise share a report. Characters not allowed in file names on
+     * some systems are replaced by '_'
+     *
+     * @param comparison - comparison to name
+     * @return file name of the report
+     */
+    public static String reportName(FileComparison comparison) {
+        String path1 = comparison.getFile1().getFile().getPath();
+        String path2 = comparison.getFile2().getFile().getPath();
+        byte[] hash;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(path1.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(path2.getBytes(StandardCharsets.UTF_8));
+            hash = digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(sanitise(comparison.getFile1().getFile().getName())).append("--");
+        sb.append(sanitise(comparison.getFile2().getFile().getName())).append('-');
+        for (int i = 0; i < REPORT_HASH_BYTES; i++) sb.append(String.format("%02x", hash[i]));
+        return sb.append(".txt").toString();
+    }
+
+    /**
+     * Writes one line per comparison with the paths of both files and the score, in the order given
+     *
+     * @param comparisons - comparisons to write
+     * @param output_file - csv file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeSummary(List<FileComparison> comparisons, File output_file) throws IOException {
+        try (PrintWriter out = new PrintWriter(output_file, StandardCharsets.UTF_8)) {
+            out.println("file1,file2,score");
+            for (FileComparison comparison : comparisons) {
+                out.println(quote(comparison.getFile1().getFile().getPath()) + ","
+                        + quote(comparison.getFile2().getFile().getPath()) + "," + comparison.getScore());
+            }
+        }
+    }
+
+    /**
+     * Writes one line per method copy with the paths of both files, the method names and the SimHash distance, in the order given
+     *
+     * @param matches     - method copies to write
+     * @param output_file - csv file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeMethodCopies(List<MethodMatch> matches, File output_file) throws IOException {
+        try (PrintWriter out = new PrintWriter(output_file, StandardCharsets.UTF_8)) {
+            out.println("file1,method1,file2,method2,distance");
+            for (MethodMatch match : matches) {
+                out.println(quote(match.getFile1().getFile().getPath()) + "," + quote(match.getMethod1().getName()) + ","
+                        + quote(match.getFile2().getFile().getPath()) + "," + quote(match.getMethod2().getName()) + ","
+                        + match.getDistance());
+            }
+        }
+    }
+
+    private static String sanitise(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (char c : name.toCharArray()) {
+            sb.append(c < 32 || RESERVED.indexOf(c) >= 0 ? '_' : c);
+        }
+        return sb.toString();
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,198 @@
+package comparison;
+
+import normalisation.Normaliser.Features;
+import normalisation.elements.elementContainers.JavaFile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On disk cache of pairwise scores so unchanged pairs are not compared again when a run is repeated.
+ * Scores are keyed by the content hashes of both files, in either order, each combination of normalisation features
+ * and algorithm is stored in its own append only file in the cache directory.
+ * If the file cannot be written to the scores are still kept for the rest of the run, but no more are saved.
+ * Safe to use from multiple threads
+ */
+public class ResultCache implements Closeable {
+
+    private static final int MAGIC = 0x5348_4331;
+    private static final int HEADER_SIZE = 4;
+    // four hash halves and the score
+    private static final int RECORD_SIZE = 4 * 8 + 4;
+
+    private final File cache_file;
+    private final Map<PairKey, Integer> scores = new ConcurrentHashMap<>();
+    private final DataOutputStream out;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // first failed write, after which nothing more is written
+    private volatile IOException write_error;
+
+    /**
+     * Opens the cache for a combination of features and algorithm, loading any scores saved by previous runs
+     *
+     * @param cache_dir    - directory containing the cache files, created if missing
+     * @param features     - enabled normalisation features
+     * @param algorithm_id - id of the comparison algorithm
+     * @throws IOException if the cache directory cannot be written to
+     */
+    public ResultCache(File cache_dir, EnumSet<Features> features, String algorithm_id) throws IOException {
+        if (!cache_dir.isDirectory() && !cache_dir.mkdirs()) throw new IOException("Cannot create " + cache_dir);
+        long feature_mask = 0;
+        for (Features feature : features) feature_mask |= 1L << feature.ordinal();
+        String name = "scores-" + algorithm_id.replaceAll("[^A-Za-z0-9.]", "_") + "-" + Long.toHexString(feature_mask) + ".dat";
+        cache_file = new File(cache_dir, name);
+
+        boolean exists = cache_file.isFile() && load();
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cache_file, exists)));
+        if (!exists) out.writeInt(MAGIC);
+    }
+
+    /**
+     * Reads all complete records from the cache file, a partly written last record is removed
+     *
+     * @return false if the file is not a cache file and should be replaced
+     */
+    private boolean load() throws IOException {
+        long records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cache_file)))) {
+            if (in.readInt() != MAGIC) return false;
+            while (true) {
+                PairKey key = new PairKey(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+                scores.put(key, in.readInt());
+                records++;
+            }
+        } catch (EOFException e) {
+            if (records == 0 && cache_file.length() < HEADER_SIZE) return false;
+        }
+
+        long valid_length = HEADER_SIZE + records * RECORD_SIZE;
+        if (cache_file.length() > valid_length) {
+            try (RandomAccessFile file = new RandomAccessFile(cache_file, "rw")) {
+                file.setLength(valid_length);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks up the score of a previous comparison between two files with the same content
+     *
+     * @param file1 first file of the pair
+     * @param file2 second file of the pair
+     * @return score or null if the pair has not been compared before
+     */
+    public Integer getScore(JavaFile file1, JavaFile file2) {
+        Integer score = scores.get(new PairKey(file1, file2));
+        if (score == null) misses.incrementAndGet();
+        else hits.incrementAndGet();
+        return score;
+    }
+
+    /**
+     * Stores the score of a comparison. A failed write is reported once and stops the saving of scores,
+     * the score is still kept for this run
+     *
+     * @param file1 first file of the pair
+     * @param file2 second file of the pair
+     * @param score algorithm score
+     */
+    public void putScore(JavaFile file1, JavaFile file2, int score) {
+        PairKey key = new PairKey(file1, file2);
+        if (scores.putIfAbsent(key, score) != null) return;
+        synchronized (out) {
+            if (write_error != null) return;
+            try {
+                out.writeLong(key.file1_high);
+                out.writeLong(key.file1_low);
+                out.writeLong(key.file2_high);
+                out.writeLong(key.file2_low);
+                out.writeInt(score);
+            } catch (IOException e) {
+                write_error = e;
+                System.err.println("Not saving more scores to " + cache_file + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * @return error that stopped scores being saved, null if every score was saved so far
+     */
+    public IOException getWriteError() {
+        return write_error;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return scores.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (out) {
+            out.close();
+        }
+    }
+
+    /**
+     * Pair of content hashes, the lower hash first so a pair has the same key whichever file comes first.
+     * Only the first 128 bits of each hash are kept
+     */
+    private static class PairKey {
+        private final long file1_high;
+        private final long file1_low;
+        private final long file2_high;
+        private final long file2_low;
+
+        PairKey(long file1_high, long file1_low, long file2_high, long file2_low) {
+            // records written before keys were ordered are ordered when loaded
+            boolean swap = file1_high > file2_high || (file1_high == file2_high && file1_low > file2_low);
+            this.file1_high = swap ? file2_high : file1_high;
+            this.file1_low = swap ? file2_low : file1_low;
+            this.file2_high = swap ? file1_high : file2_high;
+            this.file2_low = swap ? file1_low : file2_low;
+        }
+
+        PairKey(JavaFile file1, JavaFile file2) {
+            this(ByteBuffer.wrap(file1.getContentHash()), ByteBuffer.wrap(file2.getContentHash()));
+        }
+
+        private PairKey(ByteBuffer hash1, ByteBuffer hash2) {
+            this(hash1.getLong(), hash1.getLong(), hash2.getLong(), hash2.getLong());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PairKey)) return false;
+            PairKey key = (PairKey) o;
+            return file1_high == key.file1_high && file1_low == key.file1_low
+                    && file2_high == key.file2_high && file2_low == key.file2_low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(file1_low * 31 + file2_low);
+        }
+    }
+}
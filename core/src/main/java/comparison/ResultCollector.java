@@ -0,0 +1,137 @@
+package comparison;
+
+import comparison.algorithms.Cancellation;
+import comparison.resultObjects.FileComparison;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Collects file comparisons while they are being produced, keeping only those scoring above a threshold
+ * and optionally only the best K of those. Rejected and evicted comparisons are not referenced so memory
+ * depends on the number of results rather than the number of pairs compared.
+ * A run stopped before comparing every pair marks the collector as partial.
+ * Safe to use from multiple threads
+ */
+public class ResultCollector {
+
+    private final int threshold;
+    private final int max_results;
+    // worst result at the head so it can be evicted when a better one arrives
+    private final PriorityQueue<Result> heap = new PriorityQueue<>(Comparator.reverseOrder());
+    // lowest score that can still be accepted, raised once the heap is full
+    private volatile int min_score;
+    // why the run stopped early, null if every pair was compared
+    private volatile Cancellation.Reason partial_reason;
+
+    /**
+     * @param threshold   - comparisons must score above this to be kept
+     * @param max_results - maximum number of comparisons kept, 0 or less for no limit
+     */
+    public ResultCollector(int threshold, int max_results) {
+        this.threshold = threshold;
+        this.max_results = max_results;
+        this.min_score = threshold + 1;
+    }
+
+    public ResultCollector(int threshold) {
+        this(threshold, 0);
+    }
+
+    /**
+     * Checks if a comparison with the given score would be kept, so the comparison object need not be created when it would not be
+     *
+     * @param score comparison score
+     * @return true if the score may be kept
+     */
+    public boolean accepts(int score) {
+        return score >= min_score;
+    }
+
+    /**
+     * @return lowest score that can currently be kept, only ever rises
+     */
+    public int getMinScore() {
+        return min_score;
+    }
+
+    /**
+     * Offers a comparison to the collector
+     *
+     * @param order      - position of the pair in the run, used to order results with the same score
+     * @param comparison - file comparison
+     * @return true if the comparison was kept
+     */
+    public synchronized boolean offer(long order, FileComparison comparison) {
+        if (comparison.getScore() <= threshold) return false;
+        Result result = new Result(order, comparison);
+        if (max_results > 0 && heap.size() >= max_results) {
+            if (result.compareTo(heap.peek()) >= 0) return false;
+            heap.poll();
+        }
+        heap.add(result);
+        if (max_results > 0 && heap.size() >= max_results) min_score = heap.peek().comparison.getScore();
+        return true;
+    }
+
+    /**
+     * Returns the kept comparisons
+     *
+     * @return comparisons sorted by descending score then by the order they were offered in
+     */
+    public synchronized List<FileComparison> getResults() {
+        List<Result> results = new ArrayList<>(heap);
+        results.sort(null);
+        List<FileComparison> comparisons = new ArrayList<>(results.size());
+        results.forEach(r -> comparisons.add(r.comparison));
+        return comparisons;
+    }
+
+    /**
+     * Marks the results as partial, called when pairs are left uncompared because the run stopped
+     *
+     * @param reason - why the run stopped
+     */
+    public void markPartial(Cancellation.Reason reason) {
+        if (partial_reason == null) partial_reason = reason;
+    }
+
+    /**
+     * @return true if some pairs were not compared
+     */
+    public boolean isPartial() {
+        return partial_reason != null;
+    }
+
+    /**
+     * @return why the run stopped early, null if the results are complete
+     */
+    public Cancellation.Reason getPartialReason() {
+        return partial_reason;
+    }
+
+    public synchronized int size() {
+        return heap.size();
+    }
+
+    /**
+     * Comparison with its position in the run, better results sort first
+     */
+    private static class Result implements Comparable<Result> {
+        private final long order;
+        private final FileComparison comparison;
+
+        Result(long order, FileComparison comparison) {
+            this.order = order;
+            this.comparison = comparison;
+        }
+
+        @Override
+        public int compareTo(Result o) {
+            int score_difference = o.comparison.getScore() - comparison.getScore();
+            return score_difference != 0 ? score_difference : Long.compare(order, o.order);
+        }
+    }
+}
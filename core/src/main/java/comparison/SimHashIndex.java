@@ -0,0 +1,133 @@
+package comparison;
+
+import comparison.resultObjects.MethodMatch;
+import normalisation.elements.elementContainers.JavaFile;
+import normalisation.elements.elementContainers.Method;
+import normalisation.util.SimHash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the SimHashes of every method in a corpus, finding methods copied between files in one sweep instead of
+ * comparing the methods of every pair of files. The 64 bits are cut into max_distance + 1 blocks, two hashes at most
+ * max_distance bits apart are equal in at least one block, so each block keys a table of the methods and a method is
+ * probed in every table, checking the full distance only for methods sharing a block. Each table plays the part of one
+ * permutation of the hash bits in a sorted table lookup, with exact block matches found by hashing instead of searching.
+ * Methods with few tokens are left out as short getters and setters look alike in every file.
+ * Not thread safe
+ */
+public class SimHashIndex {
+
+    public static final int DEFAULT_MAX_DISTANCE = 3;
+    public static final int DEFAULT_MIN_TOKENS = 30;
+
+    private final int max_distance;
+    private final int min_tokens;
+    private final List<Map<Long, KGramIndex.Postings>> tables = new ArrayList<>();
+    private final List<JavaFile> files = new ArrayList<>();
+    private final List<Method> methods = new ArrayList<>();
+    // file id and SimHash of each method, indexed by method id
+    private int[] method_files = new int[16];
+    private long[] hashes = new long[16];
+
+    /**
+     * @param max_distance - largest number of differing bits for two methods to be reported, each extra bit adds a table
+     * @param min_tokens   - methods with fewer body tokens are not indexed
+     * @throws IllegalArgumentException if max_distance leaves blocks of fewer than 4 bits
+     */
+    public SimHashIndex(int max_distance, int min_tokens) {
+        if (max_distance < 0 || max_distance >= SimHash.BITS / 4) {
+            throw new IllegalArgumentException("Max distance must be between 0 and " + (SimHash.BITS / 4 - 1));
+        }
+        this.max_distance = max_distance;
+        this.min_tokens = min_tokens;
+        for (int block = 0; block <= max_distance; block++) tables.add(new HashMap<>());
+    }
+
+    public SimHashIndex() {
+        this(DEFAULT_MAX_DISTANCE, DEFAULT_MIN_TOKENS);
+    }
+
+    /**
+     * Adds the methods of a normalised file to the index
+     *
+     * @param file normalised file
+     * @return id of the file, ids are given out in the order the files are added
+     */
+    public int add(JavaFile file) {
+        int file_id = files.size();
+        files.add(file);
+        for (Method method : file.getFinalMethods()) {
+            if (method.getBodyTokens().length < min_tokens) continue;
+            int id = methods.size();
+            methods.add(method);
+            if (id == hashes.length) {
+                hashes = Arrays.copyOf(hashes, id * 2);
+                method_files = Arrays.copyOf(method_files, id * 2);
+            }
+            hashes[id] = method.getSimHash();
+            method_files[id] = file_id;
+            for (int block = 0; block < tables.size(); block++) {
+                tables.get(block).computeIfAbsent(block(hashes[id], block), x -> new KGramIndex.Postings()).add(id);
+            }
+        }
+        return file_id;
+    }
+
+    /**
+     * Finds every pair of indexed methods from different files whose SimHashes are at most max_distance bits apart
+     *
+     * @return matches sorted closest first, each pair once with file 1 the file added first
+     */
+    public List<MethodMatch> findCopies() {
+        List<MethodMatch> matches = new ArrayList<>();
+        // methods already reported for the current method, reset after each one
+        boolean[] seen = new boolean[methods.size()];
+        int[] found = new int[16];
+        for (int id = 0; id < methods.size(); id++) {
+            int found_count = 0;
+            for (int block = 0; block < tables.size(); block++) {
+                KGramIndex.Postings p = tables.get(block).get(block(hashes[id], block));
+                // postings are in id order so stop at the method itself, the pair is found again from the later method
+                for (int i = 0; i < p.size && p.ids[i] < id; i++) {
+                    int other = p.ids[i];
+                    if (seen[other] || method_files[other] == method_files[id]) continue;
+                    seen[other] = true;
+                    if (found_count == found.length) found = Arrays.copyOf(found, found_count * 2);
+                    found[found_count++] = other;
+                    int distance = SimHash.distance(hashes[id], hashes[other]);
+                    if (distance <= max_distance) {
+                        matches.add(new MethodMatch(files.get(method_files[other]), methods.get(other),
+                                files.get(method_files[id]), methods.get(id), distance));
+                    }
+                }
+            }
+            for (int i = 0; i < found_count; i++) seen[found[i]] = false;
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+    /**
+     * @return number of methods indexed
+     */
+    public int size() {
+        return methods.size();
+    }
+
+    /**
+     * @param hash  - SimHash
+     * @param block - index of the block
+     * @return bits of the block, blocks split the 64 bits as evenly as possible
+     */
+    private long block(long hash, int block) {
+        int start = block * SimHash.BITS / tables.size();
+        int end = (block + 1) * SimHash.BITS / tables.size();
+        return (hash >>> start) & (-1L >>> (SimHash.BITS - (end - start)));
+    }
+}
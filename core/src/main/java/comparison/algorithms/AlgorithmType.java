@@ -0,0 +1,76 @@
+package comparison.algorithms;
+
+import java.util.function.Supplier;
+
+/**
+ * Available comparison algorithms, used to select an algorithm by name in the GUI and on the command line
+ */
+public enum AlgorithmType {
+
+    FINGERPRINT("Fingerprint", null) {
+        @Override
+        public Supplier<ComparisonAlgorithm> getConstructor() {
+            // instances of one run share the fuzzy hashes of its files, which are dropped with the run
+            FingerprintCache hashes = new FingerprintCache();
+            return () -> new FingerprintComparison(hashes);
+        }
+    },
+    STRING("String", StringComparison::new),
+    SUFFIX_ARRAY("SuffixArray", SuffixArrayComparison::new),
+    LINES("Lines", LineComparison::new),
+    MIN_HASH("MinHash", MinHashComparison::new),
+    WINNOWING("Winnowing", null) {
+        @Override
+        public Supplier<ComparisonAlgorithm> getConstructor() {
+            return winnowing(DocumentFrequency.DEFAULT_MAX_SHARE);
+        }
+    };
+
+    private final String name;
+    private final Supplier<ComparisonAlgorithm> constructor;
+
+    AlgorithmType(String name, Supplier<ComparisonAlgorithm> constructor) {
+        this.name = name;
+        this.constructor = constructor;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns a supplier creating new instances of the algorithm, one is needed per comparison thread.
+     * Call once per run, instances created by one supplier may share state about the files of the run
+     *
+     * @return algorithm constructor
+     */
+    public Supplier<ComparisonAlgorithm> getConstructor() {
+        return constructor;
+    }
+
+    /**
+     * Returns a supplier of winnowing instances for one run, ignoring fingerprints found in more than the given share of files
+     *
+     * @param max_share - share of the files of the run above which a fingerprint is template code, between 0 and 1
+     * @return algorithm constructor
+     */
+    public static Supplier<ComparisonAlgorithm> winnowing(double max_share) {
+        // instances of one run share the document frequencies of its files
+        DocumentFrequency frequencies = new DocumentFrequency(max_share);
+        return () -> new WinnowingComparison(frequencies);
+    }
+
+    /**
+     * Finds an algorithm by its display name or enum name, ignoring case
+     *
+     * @param name algorithm name
+     * @return matching algorithm type
+     * @throws IllegalArgumentException if no algorithm has the name
+     */
+    public static AlgorithmType fromName(String name) {
+        for (AlgorithmType type : values()) {
+            if (type.name.equalsIgnoreCase(name) || type.name().equalsIgnoreCase(name)) return type;
+        }
+        throw new IllegalArgumentException("Unknown algorithm: " + name);
+    }
+}
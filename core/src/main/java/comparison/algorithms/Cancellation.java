@@ -0,0 +1,83 @@
+package comparison.algorithms;
+
+import java.time.Duration;
+
+/**
+ * Cooperative stop signal for a run, set when the run is cancelled or its time limit passes.
+ * Workers poll it between units of work and stop early, keeping whatever they have finished.
+ * Safe to use from multiple threads
+ */
+public class Cancellation {
+
+    /**
+     * Why a run stopped before finishing
+     */
+    public enum Reason {
+        CANCELLED("cancelled"),
+        DEADLINE("time limit reached"),
+        // not a cancellation, the input files could not all be found so some were never compared
+        DISCOVERY_FAILED("input directory could not be read");
+
+        private final String description;
+
+        Reason(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    private final boolean has_deadline;
+    private final long deadline;
+    private volatile Reason reason;
+
+    /**
+     * @param time_limit - wall-clock time the run may take from now, null for no limit
+     */
+    public Cancellation(Duration time_limit) {
+        this.has_deadline = time_limit != null;
+        this.deadline = has_deadline ? System.nanoTime() + time_limit.toNanos() : 0;
+    }
+
+    public Cancellation() {
+        this(null);
+    }
+
+    /**
+     * Asks the run to stop, work already finished is kept
+     */
+    public void cancel() {
+        if (reason == null) reason = Reason.CANCELLED;
+    }
+
+    /**
+     * @return true once the run is cancelled or past its time limit
+     */
+    public boolean isCancelled() {
+        if (reason != null) return true;
+        if (has_deadline && System.nanoTime() - deadline >= 0) {
+            reason = Reason.DEADLINE;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stops the current unit of work if the run should stop
+     *
+     * @throws CancelledException if the run is cancelled or past its time limit
+     */
+    public void check() {
+        if (isCancelled()) throw new CancelledException(reason);
+    }
+
+    /**
+     * @return why the run stopped, null if it has not
+     */
+    public Reason getReason() {
+        return isCancelled() ? reason : null;
+    }
+}
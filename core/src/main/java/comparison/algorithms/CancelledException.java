@@ -0,0 +1,20 @@
+package comparison.algorithms;
+
+/**
+ * Thrown from inside a comparison when the run is stopped part way through it
+ */
+public class CancelledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Cancellation.Reason reason;
+
+    public CancelledException(Cancellation.Reason reason) {
+        super("Run stopped: " + reason);
+        this.reason = reason;
+    }
+
+    public Cancellation.Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,106 @@
+package comparison.algorithms;
+
+import comparison.resultObjects.Alignment;
+import normalisation.elements.elementContainers.JavaFile;
+
+/**
+ * Algorithm producing a similarity value between two files.
+ * Implementations may keep state between comparisons and are not required to be thread safe,
+ * parallel comparisons create one instance per thread
+ */
+public interface ComparisonAlgorithm {
+
+
+    default double compareFiles(JavaFile file1, JavaFile file2) {
+        return 0;
+    }
+
+    /**
+     * Compares two files when only scores of at least min_score are of interest.
+     * Algorithms able to bound their score may stop as soon as the bound falls below min_score
+     * and return it instead of the exact score, the default always computes the exact score
+     *
+     * @param file1
+     * @param file2
+     * @param min_score - lowest score of interest between 0 and 1
+     * @return the exact score, or a value below min_score if the score is known to be below it
+     */
+    default double compareFiles(JavaFile file1, JavaFile file2, double min_score) {
+        return compareFiles(file1, file2);
+    }
+
+    /**
+     * Tells whether the last comparison returned the exact score, rather than a bound after stopping early
+     *
+     * @return true if the score of the last comparison does not depend on the min_score it was given
+     */
+    default boolean isExact() {
+        return true;
+    }
+
+    /**
+     * Builds the data the algorithm looks up for a file during comparisons, so the comparisons themselves only read it.
+     * Called once per file after it is normalised, possibly from several threads at once for different files
+     *
+     * @param file - normalised file
+     */
+    default void prepare(JavaFile file) {
+    }
+
+    /**
+     * Cheap upper bound on the score of two files, used to skip pairs that cannot reach the score of interest.
+     * Must be called only on files prepared by {@link comparison.ComparisonEngine#prepare(JavaFile)}
+     *
+     * @param file1
+     * @param file2
+     * @return value at least as high as compareFiles would return, 1 if the algorithm has no bound
+     */
+    default double upperBound(JavaFile file1, JavaFile file2) {
+        return 1;
+    }
+
+    /**
+     * Returns the matching regions found by the last comparison, only complete if that comparison returned its exact score
+     *
+     * @return alignment of the files in the order they were passed to compareFiles, null if the algorithm does not align files
+     */
+    default Alignment getAlignment() {
+        return null;
+    }
+
+    /**
+     * @return true if {@link #getAlignment()} returns the matching regions of the files, false if it always returns null
+     */
+    default boolean alignsFiles() {
+        return false;
+    }
+
+    /**
+     * Scores that depend on every file of the run can only be computed once all files are prepared,
+     * and cannot be reused by a run over other files
+     *
+     * @return true if a score depends on the other files prepared, not only on the two files compared
+     */
+    default boolean dependsOnCorpus() {
+        return false;
+    }
+
+    /**
+     * Identifies the algorithm in cached results, must change whenever the scores the algorithm produces change
+     *
+     * @return algorithm id
+     */
+    default String getId() {
+        return getClass().getName();
+    }
+
+    /**
+     * Sets the signal checked during long comparisons, a comparison interrupted by it throws {@link CancelledException}
+     *
+     * @param cancellation - stop signal of the current run
+     */
+    default void setCancellation(Cancellation cancellation) {
+    }
+
+
+}
@@ -0,0 +1,72 @@
+package comparison.algorithms;
+
+import normalisation.elements.elementContainers.JavaFile;
+import normalisation.util.Winnowing;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Number of files of a run containing each winnowed fingerprint. Fingerprints found in more than a set share of the
+ * files come from shared template code or common idioms rather than copying, so they are left out of the scores.
+ * Every file of a run is counted before the first comparison, so the scores do not depend on the order files are prepared in.
+ * Safe to use from multiple threads
+ */
+public class DocumentFrequency {
+
+    public static final double DEFAULT_MAX_SHARE = 0.5;
+    // fingerprints are never ignored while fewer files than this are counted
+    static final int MIN_FILES = 20;
+
+    private final double max_share;
+    private final Map<Integer, AtomicInteger> counts = new ConcurrentHashMap<>();
+    // files already counted, a file prepared again is not counted twice
+    private final Set<JavaFile> files = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    /**
+     * @param max_share - fingerprints contained in more than this share of the files are ignored
+     */
+    public DocumentFrequency(double max_share) {
+        this.max_share = max_share;
+    }
+
+    public DocumentFrequency() {
+        this(DEFAULT_MAX_SHARE);
+    }
+
+    /**
+     * Counts each distinct fingerprint of a file once
+     *
+     * @param file - normalised file
+     */
+    public void add(JavaFile file) {
+        if (!files.add(file)) return;
+        long[] fingerprints = file.getFingerprints();
+        for (int i = 0; i < fingerprints.length; i++) {
+            int hash = Winnowing.hash(fingerprints[i]);
+            if (i > 0 && hash == Winnowing.hash(fingerprints[i - 1])) continue;
+            counts.computeIfAbsent(hash, x -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    /**
+     * @param hash - fingerprint hash
+     * @return true if the fingerprint is contained in too many of the files counted so far
+     */
+    public boolean isCommon(int hash) {
+        int file_count = files.size();
+        if (file_count < MIN_FILES) return false;
+        AtomicInteger count = counts.get(hash);
+        return count != null && count.get() > max_share * file_count;
+    }
+
+    /**
+     * @return number of files counted
+     */
+    public int size() {
+        return files.size();
+    }
+}
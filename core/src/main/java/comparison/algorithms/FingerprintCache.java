@@ -0,0 +1,139 @@
+package comparison.algorithms;
+
+import com.github.s3curitybug.similarityuniformfuzzyhash.UniformFuzzyHash;
+import normalisation.elements.elementContainers.JavaFile;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fuzzy hashes of normalised file text, keyed by a hash of the text so a file normalised again, or another file with the
+ * same normalised text, reuses the fuzzy hash. The text already reflects the normalisation features, so files normalised
+ * with different features only share an entry when their text is identical, in which case the fuzzy hash is too.
+ * Hashes built by {@link #prepare(JavaFile)} are kept for as long as the cache, so a run holds one per file it compares
+ * and the pair phase only looks them up. Hashes of files that were not prepared are bounded in number,
+ * evicting the least recently used first.
+ * Safe to use from multiple threads
+ */
+public class FingerprintCache {
+
+    // block size of the fuzzy hashes
+    static final int FACTOR = 5;
+    // hashes of files that were not prepared kept by a cache created for a run
+    public static final int DEFAULT_MAX_ENTRIES = 1_000;
+
+    // hashes of the prepared files, never evicted
+    private final Map<Key, UniformFuzzyHash> prepared = new ConcurrentHashMap<>();
+    // hashes of the other files, in access order so the eldest entry is the least recently used
+    private final Map<Key, UniformFuzzyHash> recent;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param max_entries - number of fuzzy hashes of files that were not prepared kept
+     */
+    public FingerprintCache(int max_entries) {
+        int max = Math.max(1, max_entries);
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<Key, UniformFuzzyHash>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, UniformFuzzyHash> eldest) {
+                if (size() <= max) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        });
+    }
+
+    public FingerprintCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Builds the fuzzy hash of a file and keeps it until the cache is cleared
+     *
+     * @param file - normalised file
+     */
+    public void prepare(JavaFile file) {
+        Key key = new Key(file.getNormalisedHash());
+        if (prepared.containsKey(key)) return;
+        UniformFuzzyHash hash = recent.remove(key);
+        if (hash == null) hash = new UniformFuzzyHash(file.toString(), FACTOR);
+        prepared.putIfAbsent(key, hash);
+    }
+
+    /**
+     * Returns the fuzzy hash of the normalised text of a file, building it if it is not cached.
+     * Two threads missing on the same text at once may both build it, only one copy is kept
+     *
+     * @param file - normalised file
+     * @return fuzzy hash of the file text
+     */
+    public UniformFuzzyHash get(JavaFile file) {
+        Key key = new Key(file.getNormalisedHash());
+        UniformFuzzyHash hash = prepared.get(key);
+        if (hash == null) hash = recent.get(key);
+        if (hash != null) {
+            hits.incrementAndGet();
+            return hash;
+        }
+        misses.incrementAndGet();
+        hash = new UniformFuzzyHash(file.toString(), FACTOR);
+        UniformFuzzyHash existing = recent.putIfAbsent(key, hash);
+        return existing == null ? hash : existing;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int size() {
+        return prepared.size() + recent.size();
+    }
+
+    /**
+     * Removes every entry, including the prepared ones, the statistics are kept
+     */
+    public void clear() {
+        prepared.clear();
+        recent.clear();
+    }
+
+    /**
+     * First 128 bits of a text hash
+     */
+    private static class Key {
+        private final long high;
+        private final long low;
+
+        Key(byte[] hash) {
+            ByteBuffer buffer = ByteBuffer.wrap(hash);
+            this.high = buffer.getLong();
+            this.low = buffer.getLong();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return high == key.high && low == key.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(low);
+        }
+    }
+}
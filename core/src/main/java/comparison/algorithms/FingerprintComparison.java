@@ -0,0 +1,58 @@
+package comparison.algorithms;
+
+import com.github.s3curitybug.similarityuniformfuzzyhash.UniformFuzzyHash;
+import normalisation.elements.elementContainers.JavaFile;
+
+import static com.github.s3curitybug.similarityuniformfuzzyhash.UniformFuzzyHash.SimilarityTypes.ARITHMETIC_MEAN;
+
+public class FingerprintComparison implements ComparisonAlgorithm {
+
+    private final FingerprintCache hashes;
+    private Cancellation cancellation = new Cancellation();
+
+    /**
+     * @param hashes - fuzzy hashes of files already seen, may be shared with other instances
+     */
+    public FingerprintComparison(FingerprintCache hashes) {
+        this.hashes = hashes;
+    }
+
+    /**
+     * Uses a cache of its own, instances comparing the same files should share one instead
+     */
+    public FingerprintComparison() {
+        this(new FingerprintCache());
+    }
+
+    @Override
+    public void setCancellation(Cancellation cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Builds the fuzzy hash of the file into the cache, where it stays for the rest of the run
+     *
+     * @param file - normalised file
+     */
+    @Override
+    public void prepare(JavaFile file) {
+        hashes.prepare(file);
+    }
+
+    @Override
+    public double compareFiles(JavaFile file1, JavaFile file2) {
+
+        cancellation.check();
+        UniformFuzzyHash hash1 = hashes.get(file1);
+        UniformFuzzyHash hash2 = hashes.get(file2);
+
+        int file1_size = file1.length();
+        int file2_size = file2.length();
+
+        if (file1_size == 0 || file2_size == 0) return 0;
+
+        return file1_size > file2_size ? hash2.similarity(hash1, ARITHMETIC_MEAN) : hash1.similarity(hash2,ARITHMETIC_MEAN);
+    }
+
+
+}
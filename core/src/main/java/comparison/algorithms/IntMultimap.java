@@ -0,0 +1,145 @@
+package comparison.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Map from int keys to lists of int values stored in primitive arrays, used for the hash lookups of the string tiling.
+ * Keys are placed by open addressing, the values of a key are chained through an index array in the order they were added.
+ * Clearing is constant time, so one instance can be reused for every scan without allocating.
+ * Not thread safe
+ */
+public class IntMultimap {
+
+    private static final int NONE = -1;
+    private static final int GOLDEN_RATIO = 0x9E37_79B9;
+
+    // open addressing table, a slot is in use only when its stamp matches the current generation
+    private int[] keys;
+    private int[] heads;
+    private int[] tails;
+    private int[] stamps;
+    private int generation = 1;
+    private int shift;
+    private int used_slots = 0;
+
+    // entries in the order they were added
+    private int[] values;
+    private int[] next;
+    private int size = 0;
+
+    public IntMultimap() {
+        allocateTable(64);
+        values = new int[64];
+        next = new int[64];
+    }
+
+    /**
+     * Adds a value to the list of a key
+     *
+     * @param key   - key
+     * @param value - value appended to the list of the key
+     */
+    public void add(int key, int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            next = Arrays.copyOf(next, size * 2);
+        }
+        int entry = size++;
+        values[entry] = value;
+        next[entry] = NONE;
+
+        int slot = findSlot(key);
+        if (stamps[slot] != generation) {
+            stamps[slot] = generation;
+            keys[slot] = key;
+            heads[slot] = entry;
+            tails[slot] = entry;
+            if (++used_slots * 2 > keys.length) rehash();
+        } else {
+            next[tails[slot]] = entry;
+            tails[slot] = entry;
+        }
+    }
+
+    /**
+     * Finds the first value of a key, the rest are reached with {@link #next(int)}
+     *
+     * @param key key to look up
+     * @return entry of the first value or -1 if the key has no values
+     */
+    public int first(int key) {
+        int slot = findSlot(key);
+        return stamps[slot] == generation ? heads[slot] : NONE;
+    }
+
+    /**
+     * @param entry current entry
+     * @return entry of the next value of the same key or -1 if there are no more
+     */
+    public int next(int entry) {
+        return next[entry];
+    }
+
+    /**
+     * @param entry entry returned by {@link #first(int)} or {@link #next(int)}
+     * @return value stored in the entry
+     */
+    public int value(int entry) {
+        return values[entry];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all keys and values, keeping the allocated arrays
+     */
+    public void clear() {
+        size = 0;
+        used_slots = 0;
+        if (++generation == 0) {
+            // stamps wrapped around, old stamps could match again
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * @return slot holding the key, or the empty slot where it would be placed
+     */
+    private int findSlot(int key) {
+        int mask = keys.length - 1;
+        int slot = (key * GOLDEN_RATIO) >>> shift;
+        while (stamps[slot] == generation && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void allocateTable(int capacity) {
+        keys = new int[capacity];
+        heads = new int[capacity];
+        tails = new int[capacity];
+        stamps = new int[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity - 1);
+    }
+
+    private void rehash() {
+        int[] old_keys = keys;
+        int[] old_heads = heads;
+        int[] old_tails = tails;
+        int[] old_stamps = stamps;
+        int old_generation = generation;
+        allocateTable(keys.length * 2);
+        generation = 1;
+        for (int i = 0; i < old_keys.length; i++) {
+            if (old_stamps[i] != old_generation) continue;
+            int slot = findSlot(old_keys[i]);
+            stamps[slot] = generation;
+            keys[slot] = old_keys[i];
+            heads[slot] = old_heads[i];
+            tails[slot] = old_tails[i];
+        }
+    }
+}
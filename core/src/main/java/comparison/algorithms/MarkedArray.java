@@ -0,0 +1,108 @@
+package comparison.algorithms;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Token ids of a file with a mark for each token covered by a tile
+ */
+public class MarkedArray {
+
+    private int[] tokens;
+    private final BitSet marks;
+
+    /**
+     * @param tokens - token ids, not copied so must not be modified while in use
+     */
+    public MarkedArray(int[] tokens) {
+        this.tokens = tokens;
+        this.marks = new BitSet(tokens.length);
+    }
+
+    /**
+     * Creates an empty array to be filled by {@link #reset(int[])}
+     */
+    public MarkedArray() {
+        this(new int[0]);
+    }
+
+    /**
+     * Switches to new tokens with no marks, the mark words are kept so reuse does not allocate once they are large enough
+     *
+     * @param tokens - token ids, not copied so must not be modified while in use
+     */
+    public void reset(int[] tokens) {
+        this.tokens = tokens;
+        marks.clear();
+    }
+
+    public void print() {
+        System.out.println(Arrays.toString(tokens));
+        System.out.println(marks);
+    }
+
+    public int get(int index) {
+        return tokens[index];
+    }
+
+    public boolean isMarked(int index) {
+        return marks.get(index);
+    }
+
+    public void mark(int index) {
+        marks.set(index);
+    }
+
+    /**
+     * Marks a range of tokens
+     *
+     * @param start - first token
+     * @param end   - token after the last
+     */
+    public void mark(int start, int end) {
+        marks.set(start, end);
+    }
+
+    /**
+     * @param start - first token
+     * @param end   - token after the last
+     * @return true if any token in the range is marked
+     */
+    public boolean isMarked(int start, int end) {
+        return nextMarked(start) < end;
+    }
+
+    /**
+     * @param index - position to start from
+     * @return first unmarked position at or after index, size() if there is none
+     */
+    public int nextUnmarked(int index) {
+        return Math.min(marks.nextClearBit(index), tokens.length);
+    }
+
+    /**
+     * @param index - position to start from
+     * @return first marked position at or after index, size() if there is none
+     */
+    public int nextMarked(int index) {
+        int next = marks.nextSetBit(index);
+        return next < 0 ? tokens.length : next;
+    }
+
+    public int size() {
+        return tokens.length;
+    }
+
+    /**
+     * Checks if a range of tokens equals a range of another array
+     *
+     * @param start       - first token in this array
+     * @param other       - array to compare with
+     * @param other_start - first token in the other array
+     * @param length      - number of tokens to compare
+     * @return true if all tokens are equal
+     */
+    public boolean regionMatches(int start, MarkedArray other, int other_start, int length) {
+        return Arrays.equals(tokens, start, start + length, other.tokens, other_start, other_start + length);
+    }
+}
@@ -0,0 +1,32 @@
+package comparison.algorithms;
+
+import normalisation.elements.elementContainers.JavaFile;
+
+/**
+ * Estimated Jaccard similarity of the token shingles of two files, taken from their MinHash signatures.
+ * A comparison only compares two fixed size signatures, so the cost does not depend on the file lengths.
+ * The score is less exact than the tiling algorithms, it is meant for triage of large corpora together with
+ * an {@link comparison.LshIndex} choosing the pairs, the pairs kept can then be checked again with a slower algorithm
+ */
+public class MinHashComparison implements ComparisonAlgorithm {
+
+    /**
+     * Builds the signature of the file
+     *
+     * @param file - normalised file
+     */
+    @Override
+    public void prepare(JavaFile file) {
+        file.getMinHash();
+    }
+
+    /**
+     * @param file1
+     * @param file2
+     * @return share of equal signature slots, an estimate of the Jaccard similarity of the shingle sets
+     */
+    @Override
+    public double compareFiles(JavaFile file1, JavaFile file2) {
+        return file1.getMinHash().similarity(file2.getMinHash());
+    }
+}
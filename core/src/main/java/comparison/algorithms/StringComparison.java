@@ -0,0 +1,293 @@
+package comparison.algorithms;
+
+import comparison.resultObjects.Alignment;
+import normalisation.elements.elementContainers.JavaFile;
+
+import java.util.BitSet;
+
+/**
+ * Running-Karp-Rabin Greedy String Tiling over the token ids of two files.
+ * All working state is kept in buffers owned by the instance and reused by every comparison, so once the buffers
+ * have grown to the largest files seen a comparison allocates nothing. Each worker thread needs its own instance
+ */
+public class StringComparison implements ComparisonAlgorithm {
+
+    // scan positions between cancellation checks
+    private static final int CHECK_INTERVAL = 1024;
+    // odd so the rolling hash keeps every token of the window, arithmetic wraps modulo 2^32
+    private static final int HASH_BASE = 0x01000193;
+
+    private Cancellation cancellation = new Cancellation();
+    // text window hashes to their start positions
+    private final IntMultimap map = new IntMultimap();
+    private final MarkedArray text_marks = new MarkedArray();
+    private final MarkedArray pattern_marks = new MarkedArray();
+    // maximal matches found by the last full scan of the pattern
+    private final TileList matches = new TileList();
+    private final TileList tiles = new TileList();
+    // whether the first file of the last comparison was the pattern
+    private boolean pattern_is_file1;
+    // whether the last tiling ran to the end rather than stopping at a bound
+    private boolean exact = true;
+    private final BitSet seen_search_lens = new BitSet();
+
+    @Override
+    public void setCancellation(Cancellation cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Executes the Running-Karp-Rabin-Greedy-String-Tiling algorithm
+     *
+     * @param file1
+     * @param file2
+     * @return
+     */
+    public double compareFiles(JavaFile file1, JavaFile file2) {
+        return compareFiles(file1, file2, 0);
+    }
+
+    /**
+     * Executes the tiling, stopping once the tokens that could still be tiled cannot lift the score to min_score.
+     * The token histogram bound is not checked again here, callers skip the pairs {@link #upperBound} rules out
+     *
+     * @param file1
+     * @param file2
+     * @param min_score - lowest score of interest between 0 and 1
+     * @return share of the shorter file covered by tiles, or an upper bound below min_score if stopped early
+     */
+    @Override
+    public double compareFiles(JavaFile file1, JavaFile file2, double min_score) {
+
+        boolean file1_bigger = file1.getTextLength() > file2.getTextLength();
+        int[] longer = file1_bigger ? file1.getTokens() : file2.getTokens();
+        int[] shorter = file1_bigger ? file2.getTokens() : file1.getTokens();
+        pattern_is_file1 = !file1_bigger;
+        // one token of slack so rounding never drops a pair that would reach min_score
+        int min_coverage = (int) Math.ceil(min_score * shorter.length) - 1;
+        int bound = RKR_GST(longer, shorter, 5, 20, min_coverage);
+        if (!exact) return ((double) bound) / ((double) shorter.length);
+
+        return getScore(shorter.length);
+
+    }
+
+    /**
+     * @param T                  - token ids of the text, the longer file
+     * @param P                  - token ids of the pattern, the shorter file
+     * @param min_match_len      - shortest tile kept
+     * @param initial_search_len - length of the first matches searched for
+     * @return tiles found, owned by this instance and only valid until the next comparison
+     */
+    public TileList RKR_GST(int[] T, int[] P, int min_match_len, int initial_search_len) {
+        RKR_GST(T, P, min_match_len, initial_search_len, 0);
+        return tiles;
+    }
+
+    @Override
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Every tile pairs equal tokens, so the coverage is at most the number of tokens the files have in common
+     *
+     * @param file1
+     * @param file2
+     * @return share of the shorter file the tiles could cover at most
+     */
+    @Override
+    public double upperBound(JavaFile file1, JavaFile file2) {
+        return coverageBound(file1, file2);
+    }
+
+    /**
+     * Bound shared by the tiling algorithms, which all score the share of the shorter file covered by tiles
+     */
+    static double coverageBound(JavaFile file1, JavaFile file2) {
+        JavaFile shorter = file1.getTextLength() > file2.getTextLength() ? file2 : file1;
+        int shared = file1.getHistogram().intersection(file2.getHistogram());
+        return ((double) shared) / ((double) shorter.getTokens().length);
+    }
+
+    /**
+     * Tiles as long as the coverage can still reach min_coverage.
+     * Every tile is at least min_match_len long, so the final coverage is at most the tiles so far
+     * plus the unmarked runs long enough to hold another tile
+     *
+     * @param T                  - token ids of the text, the longer file
+     * @param P                  - token ids of the pattern, the shorter file
+     * @param min_match_len      - shortest tile kept
+     * @param initial_search_len - length of the first matches searched for
+     * @param min_coverage       - number of tiled pattern tokens of interest
+     * @return final coverage, or an upper bound on it below min_coverage if the tiling stopped early
+     */
+    public int RKR_GST(int[] T, int[] P, int min_match_len, int initial_search_len, int min_coverage) {
+
+
+        if (min_match_len < 1)
+            min_match_len = 3;
+
+        if (initial_search_len < 5)
+            initial_search_len = 20;
+
+        int search_len = initial_search_len;
+        tiles.clear();
+        seen_search_lens.clear();
+        MarkedArray T_vals = text_marks;
+        MarkedArray P_vals = pattern_marks;
+        T_vals.reset(T);
+        P_vals.reset(P);
+        while (true) {
+            cancellation.check();
+            if (seen_search_lens.get(search_len)) break;
+            seen_search_lens.set(search_len);
+            int l_max = scanPattern(T_vals, P_vals, search_len);
+            if (l_max > (2 * search_len)) search_len = l_max;
+            else {
+                markStrings(T_vals, P_vals);
+                if (min_coverage > 0) {
+                    int tileable = Math.min(tileableTokens(P_vals, min_match_len), tileableTokens(T_vals, min_match_len));
+                    int bound = tiles.coverage() + tileable;
+                    if (bound < min_coverage) {
+                        exact = false;
+                        return bound;
+                    }
+                }
+                if (search_len > 2 * min_match_len) search_len /= 2;
+                else if (search_len > min_match_len) search_len = min_match_len;
+                else break;
+            }
+
+        }
+
+        exact = true;
+        return tiles.coverage();
+    }
+
+    /**
+     * @return number of unmarked tokens in runs at least min_match_len long
+     */
+    private static int tileableTokens(MarkedArray arr, int min_match_len) {
+        int tokens = 0;
+        int run_start = arr.nextUnmarked(0);
+        while (run_start < arr.size()) {
+            int run_end = arr.nextMarked(run_start);
+            if (run_end - run_start >= min_match_len) tokens += run_end - run_start;
+            run_start = arr.nextUnmarked(run_end);
+        }
+        return tokens;
+    }
+
+    /**
+     * @param pattern_size - number of tokens in the shorter file
+     * @return share of the shorter file covered by tiles
+     */
+    public double getScore(int pattern_size) {
+        int coverage = tiles.coverage();
+        return ((double) coverage) / ((double) pattern_size);
+    }
+
+    private int scanPattern(MarkedArray text_string, MarkedArray pattern_string, int search_len) {
+        map.clear();
+
+        scan(text_string, pattern_string, true, search_len, map);
+        return scan(text_string, pattern_string, false, search_len, map);
+    }
+
+    /**
+     * Turns the matches found by the last scan into tiles, skipping those overlapping a tile already placed.
+     * Tiles are exactly the marked tokens, so a match is occluded if any of its tokens is marked in either array
+     */
+    private void markStrings(MarkedArray T, MarkedArray P) {
+        for (int i = 0; i < matches.size(); i++) {
+            int p_pos = matches.getPatternPos(i);
+            int s_pos = matches.getTextPos(i);
+            int len = matches.getLength(i);
+            if (!isOccluded(p_pos, s_pos, len, T, P)) {
+                P.mark(p_pos, p_pos + len);
+                T.mark(s_pos, s_pos + len);
+                tiles.add(p_pos, s_pos, len);
+            }
+        }
+        matches.clear();
+    }
+
+    private static boolean isOccluded(int p_pos, int s_pos, int len, MarkedArray T, MarkedArray P) {
+        return P.isMarked(p_pos, p_pos + len) || T.isMarked(s_pos, s_pos + len);
+    }
+
+    /**
+     * Scans the unmarked runs of one string with a rolling Karp-Rabin hash of every window of search_len tokens.
+     * The hash is updated in constant time per position and only restarted where a run begins after a tile.
+     * Text windows are added to the map, pattern windows are looked up in it and extended into maximal matches
+     *
+     * Only a pattern scan that runs to the end leaves its matches for {@link #markStrings}
+     *
+     * @return length of the longest match, returned as soon as one longer than twice the search length is found
+     */
+    private int scan(MarkedArray text_string, MarkedArray pattern_string, boolean text, int search_len, IntMultimap map) {
+        int longest_match = 0;
+        if (!text) matches.clear();
+        MarkedArray arr = text ? text_string : pattern_string;
+        // weight of the token leaving the window
+        int leading_power = 1;
+        for (int i = 1; i < search_len; i++) leading_power *= HASH_BASE;
+
+        int steps = 0;
+        int run_start = arr.nextUnmarked(0);
+        while (run_start < arr.size()) {
+            int run_end = arr.nextMarked(run_start);
+            if (run_end - run_start >= search_len) {
+                int hash = 0;
+                for (int i = run_start; i < run_start + search_len; i++) hash = hash * HASH_BASE + arr.get(i);
+
+                for (int current_index = run_start; ; current_index++) {
+                    if (++steps % CHECK_INTERVAL == 0) cancellation.check();
+                    if (text) {
+                        map.add(hash, current_index);
+                    } else {
+                        for (int entry = map.first(hash); entry >= 0; entry = map.next(entry)) {
+                            int text_index = map.value(entry);
+                            if (!arr.regionMatches(current_index, text_string, text_index, search_len)) continue;
+                            int new_search_len = search_len;
+                            while (current_index + new_search_len < arr.size() && text_index + new_search_len < text_string.size()
+                                    && arr.get(current_index + new_search_len) == text_string.get(text_index + new_search_len)
+                                    && !arr.isMarked(current_index + new_search_len)
+                                    && !text_string.isMarked(text_index + new_search_len)) {
+                                new_search_len++;
+                            }
+
+                            if (new_search_len > 2 * search_len) return new_search_len;
+                            longest_match = Math.max(longest_match, new_search_len);
+                            matches.add(current_index, text_index, new_search_len);
+                        }
+                    }
+
+                    if (current_index + search_len == run_end) break;
+                    // roll the window one token to the right
+                    hash = (hash - arr.get(current_index) * leading_power) * HASH_BASE + arr.get(current_index + search_len);
+                }
+            }
+            run_start = arr.nextUnmarked(run_end);
+        }
+
+        return longest_match;
+    }
+
+    @Override
+    public boolean alignsFiles() {
+        return true;
+    }
+
+    @Override
+    public Alignment getAlignment() {
+        return Alignment.fromTiles(tiles, pattern_is_file1);
+    }
+
+    @Override
+    public String getId() {
+        // scores changed when the scan switched to full length windows and again when touching tiles stopped occluding
+        return getClass().getName() + "-3";
+    }
+}
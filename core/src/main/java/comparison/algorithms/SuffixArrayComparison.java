@@ -0,0 +1,295 @@
+package comparison.algorithms;
+
+import comparison.resultObjects.Alignment;
+import normalisation.elements.elementContainers.JavaFile;
+
+import java.util.Arrays;
+
+/**
+ * Greedy tiling of the token ids of two files using a suffix array of both files joined by a separator.
+ * The suffix array is built by prefix doubling with radix sorting and the longest common prefixes by Kasai's algorithm,
+ * so a comparison takes O(n log n) time however long or repetitive the files are, where the Karp-Rabin scan of
+ * {@link StringComparison} slows down on long repeated runs.
+ * <p>
+ * Every suffix of the pattern is paired with its nearest text suffix on either side in the suffix array, which shares
+ * the longest prefix with it. These candidates are placed longest first, a candidate overlapping a tile already placed
+ * is cut into its unmarked parts which are placed later if they are still long enough.
+ * Only one text position is kept for each pattern suffix, so where a match repeats in the text the tiles can differ
+ * from those found by {@link StringComparison}, the score is the same share of the shorter file covered by tiles
+ */
+public class SuffixArrayComparison implements ComparisonAlgorithm {
+
+    private static final int MIN_MATCH_LEN = 5;
+    // positions sorted between cancellation checks
+    private static final int CHECK_INTERVAL = 1 << 16;
+
+    private Cancellation cancellation = new Cancellation();
+
+    // suffix array workspace, grown to the largest pair seen
+    private int[] joined = new int[0];
+    private int[] suffixes = new int[0];
+    private int[] ranks = new int[0];
+    private int[] buffer = new int[0];
+    private int[] lcp = new int[0];
+    private int[] counts = new int[0];
+
+    private final MarkedArray text_marks = new MarkedArray();
+    private final MarkedArray pattern_marks = new MarkedArray();
+    private final TileList candidates = new TileList();
+    // candidate lengths to the candidates of that length
+    private final IntMultimap by_length = new IntMultimap();
+    private final TileList tiles = new TileList();
+    // whether the first file of the last comparison was the pattern
+    private boolean pattern_is_file1;
+
+    @Override
+    public void setCancellation(Cancellation cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * @param file1
+     * @param file2
+     * @return share of the shorter file covered by tiles
+     */
+    @Override
+    public double compareFiles(JavaFile file1, JavaFile file2) {
+        boolean file1_bigger = file1.getTextLength() > file2.getTextLength();
+        int[] longer = file1_bigger ? file1.getTokens() : file2.getTokens();
+        int[] shorter = file1_bigger ? file2.getTokens() : file1.getTokens();
+        pattern_is_file1 = !file1_bigger;
+        tile(longer, shorter);
+
+        return getScore(shorter.length);
+    }
+
+    @Override
+    public double upperBound(JavaFile file1, JavaFile file2) {
+        return StringComparison.coverageBound(file1, file2);
+    }
+
+    /**
+     * @param T - token ids of the text, the longer file
+     * @param P - token ids of the pattern, the shorter file
+     * @return tiles found, owned by this instance and only valid until the next comparison
+     */
+    public TileList tile(int[] T, int[] P) {
+        tiles.clear();
+        candidates.clear();
+        by_length.clear();
+        text_marks.reset(T);
+        pattern_marks.reset(P);
+
+        int n = T.length + 1 + P.length;
+        int alphabet = join(T, P, n);
+        buildSuffixArray(n, alphabet);
+        buildLcp(n);
+        findCandidates(T.length, n);
+        placeTiles();
+        return tiles;
+    }
+
+    /**
+     * @param pattern_size - number of tokens in the shorter file
+     * @return share of the shorter file covered by tiles
+     */
+    public double getScore(int pattern_size) {
+        return ((double) tiles.coverage()) / ((double) pattern_size);
+    }
+
+    /**
+     * Writes the text, a separator and the pattern into one array, shifting the token ids up so the separator is 0
+     *
+     * @return number of distinct values the joined array can hold
+     */
+    private int join(int[] T, int[] P, int n) {
+        if (joined.length < n) {
+            joined = new int[n];
+            suffixes = new int[n];
+            ranks = new int[n];
+            buffer = new int[n];
+            lcp = new int[n];
+        }
+        int alphabet = 1;
+        for (int i = 0; i < T.length; i++) {
+            joined[i] = T[i] + 1;
+            alphabet = Math.max(alphabet, joined[i] + 1);
+        }
+        joined[T.length] = 0;
+        for (int i = 0; i < P.length; i++) {
+            joined[T.length + 1 + i] = P[i] + 1;
+            alphabet = Math.max(alphabet, joined[T.length + 1 + i] + 1);
+        }
+        return alphabet;
+    }
+
+    /**
+     * Prefix doubling, each round radix sorts the suffixes by the ranks of their first k tokens and of the k after them
+     */
+    private void buildSuffixArray(int n, int alphabet) {
+        int buckets = Math.max(alphabet, n) + 1;
+        if (counts.length < buckets) counts = new int[buckets];
+
+        for (int i = 0; i < n; i++) {
+            ranks[i] = joined[i];
+            buffer[i] = i;
+        }
+        countingSort(n, alphabet);
+
+        int classes = 0;
+        for (int k = 1; ; k <<= 1) {
+            cancellation.check();
+            // order by the second half, suffixes too short to have one come first
+            int p = 0;
+            for (int i = Math.max(0, n - k); i < n; i++) buffer[p++] = i;
+            for (int i = 0; i < n; i++) {
+                if (suffixes[i] >= k) buffer[p++] = suffixes[i] - k;
+            }
+            countingSort(n, classes == 0 ? alphabet : classes);
+
+            // number the distinct pairs of halves, buffer is free to hold the new ranks
+            buffer[suffixes[0]] = 0;
+            classes = 1;
+            for (int i = 1; i < n; i++) {
+                int current = suffixes[i];
+                int previous = suffixes[i - 1];
+                if (ranks[current] != ranks[previous] || secondRank(current, k, n) != secondRank(previous, k, n)) classes++;
+                buffer[current] = classes - 1;
+            }
+            int[] swap = ranks;
+            ranks = buffer;
+            buffer = swap;
+            if (classes == n) break;
+        }
+    }
+
+    private int secondRank(int suffix, int k, int n) {
+        return suffix + k < n ? ranks[suffix + k] : -1;
+    }
+
+    /**
+     * Stable sort of the positions in buffer by their rank into suffixes
+     */
+    private void countingSort(int n, int range) {
+        Arrays.fill(counts, 0, range + 1, 0);
+        for (int i = 0; i < n; i++) counts[ranks[i] + 1]++;
+        for (int i = 1; i <= range; i++) counts[i] += counts[i - 1];
+        for (int i = 0; i < n; i++) {
+            if (i % CHECK_INTERVAL == CHECK_INTERVAL - 1) cancellation.check();
+            suffixes[counts[ranks[buffer[i]]]++] = buffer[i];
+        }
+    }
+
+    /**
+     * Kasai's algorithm, lcp[i] is the length of the common prefix of the suffixes at i - 1 and i of the suffix array
+     */
+    private void buildLcp(int n) {
+        for (int i = 0; i < n; i++) ranks[suffixes[i]] = i;
+        int h = 0;
+        lcp[0] = 0;
+        for (int i = 0; i < n; i++) {
+            if (ranks[i] == 0) {
+                h = 0;
+                continue;
+            }
+            int j = suffixes[ranks[i] - 1];
+            while (i + h < n && j + h < n && joined[i + h] == joined[j + h]) h++;
+            lcp[ranks[i]] = h;
+            if (h > 0) h--;
+        }
+    }
+
+    /**
+     * Pairs every pattern suffix with the nearest text suffix before and after it in the suffix array.
+     * Matches that extend to the left are skipped as the candidate of an earlier pattern position covers them
+     */
+    private void findCandidates(int text_length, int n) {
+        int text_suffix = -1;
+        int common = 0;
+        for (int i = 0; i < n; i++) {
+            common = Math.min(common, lcp[i]);
+            if (suffixes[i] < text_length) {
+                text_suffix = suffixes[i];
+                common = Integer.MAX_VALUE;
+            } else if (suffixes[i] > text_length && text_suffix >= 0) {
+                addCandidate(suffixes[i] - text_length - 1, text_suffix, common);
+            }
+        }
+
+        text_suffix = -1;
+        common = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            if (i + 1 < n) common = Math.min(common, lcp[i + 1]);
+            if (suffixes[i] < text_length) {
+                text_suffix = suffixes[i];
+                common = Integer.MAX_VALUE;
+            } else if (suffixes[i] > text_length && text_suffix >= 0) {
+                addCandidate(suffixes[i] - text_length - 1, text_suffix, common);
+            }
+        }
+    }
+
+    private void addCandidate(int p_pos, int s_pos, int len) {
+        if (len < MIN_MATCH_LEN) return;
+        if (p_pos > 0 && s_pos > 0 && pattern_marks.get(p_pos - 1) == text_marks.get(s_pos - 1)) return;
+        by_length.add(len, candidates.size());
+        candidates.add(p_pos, s_pos, len);
+    }
+
+    /**
+     * Places the candidates longest first, candidates are only ever split into shorter ones so each length is visited once
+     */
+    private void placeTiles() {
+        int longest = 0;
+        for (int i = 0; i < candidates.size(); i++) longest = Math.max(longest, candidates.getLength(i));
+
+        int steps = 0;
+        for (int len = longest; len >= MIN_MATCH_LEN; len--) {
+            for (int entry = by_length.first(len); entry >= 0; entry = by_length.next(entry)) {
+                if (++steps % CHECK_INTERVAL == 0) cancellation.check();
+                int candidate = by_length.value(entry);
+                int p_pos = candidates.getPatternPos(candidate);
+                int s_pos = candidates.getTextPos(candidate);
+                if (!pattern_marks.isMarked(p_pos, p_pos + len) && !text_marks.isMarked(s_pos, s_pos + len)) {
+                    pattern_marks.mark(p_pos, p_pos + len);
+                    text_marks.mark(s_pos, s_pos + len);
+                    tiles.add(p_pos, s_pos, len);
+                } else {
+                    split(p_pos, s_pos, len);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the parts of a match where neither file is marked as new candidates
+     */
+    private void split(int p_pos, int s_pos, int len) {
+        int offset = 0;
+        while (offset < len) {
+            // skip to where both files are unmarked
+            int start = Math.max(pattern_marks.nextUnmarked(p_pos + offset) - p_pos, text_marks.nextUnmarked(s_pos + offset) - s_pos);
+            if (start != offset) {
+                offset = start;
+                continue;
+            }
+            int end = Math.min(len, Math.min(pattern_marks.nextMarked(p_pos + offset) - p_pos,
+                    text_marks.nextMarked(s_pos + offset) - s_pos));
+            if (end - start >= MIN_MATCH_LEN) {
+                by_length.add(end - start, candidates.size());
+                candidates.add(p_pos + start, s_pos + start, end - start);
+            }
+            offset = end;
+        }
+    }
+
+    @Override
+    public boolean alignsFiles() {
+        return true;
+    }
+
+    @Override
+    public Alignment getAlignment() {
+        return Alignment.fromTiles(tiles, pattern_is_file1);
+    }
+}
@@ -0,0 +1,65 @@
+package comparison.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * List of matches or tiles stored as packed int triples of pattern position, text position and length.
+ * The buffer only grows, so one instance can be reused for every comparison without allocating.
+ * Not thread safe
+ */
+public class TileList {
+
+    private static final int FIELDS = 3;
+
+    private int[] data;
+    private int size = 0;
+
+    public TileList() {
+        data = new int[64 * FIELDS];
+    }
+
+    /**
+     * @param p_pos - first token in the pattern
+     * @param s_pos - first token in the text
+     * @param len   - number of tokens
+     */
+    public void add(int p_pos, int s_pos, int len) {
+        if (size * FIELDS == data.length) data = Arrays.copyOf(data, data.length * 2);
+        int offset = size++ * FIELDS;
+        data[offset] = p_pos;
+        data[offset + 1] = s_pos;
+        data[offset + 2] = len;
+    }
+
+    public int getPatternPos(int index) {
+        return data[index * FIELDS];
+    }
+
+    public int getTextPos(int index) {
+        return data[index * FIELDS + 1];
+    }
+
+    public int getLength(int index) {
+        return data[index * FIELDS + 2];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return total length of all entries
+     */
+    public int coverage() {
+        int coverage = 0;
+        for (int i = 0; i < size; i++) coverage += getLength(i);
+        return coverage;
+    }
+
+    /**
+     * Empties the list keeping its buffer
+     */
+    public void clear() {
+        size = 0;
+    }
+}
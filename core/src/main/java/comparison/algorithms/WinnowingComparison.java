@@ -0,0 +1,79 @@
+package comparison.algorithms;
+
+import normalisation.elements.elementContainers.JavaFile;
+import normalisation.util.Winnowing;
+
+/**
+ * Share of the winnowed fingerprints two files have in common, as computed by MOSS. Fingerprints found in too many
+ * files of the run are dropped from both files first, so shared template code neither raises the score nor counts
+ * towards the size of the files. Instances compared in the same run must share one {@link DocumentFrequency},
+ * and every file of the run must be prepared before the first comparison
+ */
+public class WinnowingComparison implements ComparisonAlgorithm {
+
+    private final DocumentFrequency frequencies;
+    private Cancellation cancellation = new Cancellation();
+
+    /**
+     * @param frequencies - document frequencies of the fingerprints in the files of the run
+     */
+    public WinnowingComparison(DocumentFrequency frequencies) {
+        this.frequencies = frequencies;
+    }
+
+    @Override
+    public void setCancellation(Cancellation cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Builds the fingerprints of the file and counts them in the document frequencies
+     *
+     * @param file - normalised file
+     */
+    @Override
+    public void prepare(JavaFile file) {
+        frequencies.add(file);
+    }
+
+    @Override
+    public boolean dependsOnCorpus() {
+        return true;
+    }
+
+    /**
+     * @param file1
+     * @param file2
+     * @return distinct fingerprints in both files as a share of those of the file with fewer, ignoring common fingerprints,
+     * 0 if a file has no fingerprints left as nothing but template code is shared
+     */
+    @Override
+    public double compareFiles(JavaFile file1, JavaFile file2) {
+        cancellation.check();
+        long[] fingerprints1 = file1.getFingerprints();
+        long[] fingerprints2 = file2.getFingerprints();
+        int distinct1 = 0;
+        int distinct2 = 0;
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        // merge of the two arrays sorted by hash, skipping repeats of a hash and common fingerprints
+        while (i < fingerprints1.length || j < fingerprints2.length) {
+            int hash1 = i < fingerprints1.length ? Winnowing.hash(fingerprints1[i]) : Integer.MAX_VALUE;
+            int hash2 = j < fingerprints2.length ? Winnowing.hash(fingerprints2[j]) : Integer.MAX_VALUE;
+            int hash = Math.min(hash1, hash2);
+            boolean in1 = i < fingerprints1.length && hash1 == hash;
+            boolean in2 = j < fingerprints2.length && hash2 == hash;
+            while (i < fingerprints1.length && Winnowing.hash(fingerprints1[i]) == hash) i++;
+            while (j < fingerprints2.length && Winnowing.hash(fingerprints2[j]) == hash) j++;
+            if (frequencies.isCommon(hash)) continue;
+            if (in1) distinct1++;
+            if (in2) distinct2++;
+            if (in1 && in2) shared++;
+        }
+
+        int smaller = Math.min(distinct1, distinct2);
+        if (smaller == 0) return 0;
+        return ((double) shared) / ((double) smaller);
+    }
+}
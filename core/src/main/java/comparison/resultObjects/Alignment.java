@@ -0,0 +1,79 @@
+package comparison.resultObjects;
+
+import comparison.algorithms.TileList;
+import normalisation.elements.elementContainers.JavaFile;
+
+import java.io.Serializable;
+
+/**
+ * Matching token runs of two files found by a tiling algorithm, kept with a comparison so the matched regions can be
+ * shown without comparing the files again. Runs are stored as packed int triples of the first token in file 1,
+ * the first token in file 2 and the length, and are mapped to lines of the normalised text only when displayed
+ */
+public class Alignment implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final int FIELDS = 3;
+
+    private final int[] tiles;
+
+    /**
+     * @param tiles - packed triples of first token in file 1, first token in file 2 and length
+     */
+    public Alignment(int[] tiles) {
+        this.tiles = tiles;
+    }
+
+    /**
+     * Copies the tiles of a comparison, which are indexed by pattern and text position
+     *
+     * @param tiles            - tiles found by the algorithm
+     * @param pattern_is_file1 - true if the first file of the comparison was the pattern
+     * @return alignment of file 1 with file 2
+     */
+    public static Alignment fromTiles(TileList tiles, boolean pattern_is_file1) {
+        int[] packed = new int[tiles.size() * FIELDS];
+        for (int i = 0; i < tiles.size(); i++) {
+            packed[i * FIELDS] = pattern_is_file1 ? tiles.getPatternPos(i) : tiles.getTextPos(i);
+            packed[i * FIELDS + 1] = pattern_is_file1 ? tiles.getTextPos(i) : tiles.getPatternPos(i);
+            packed[i * FIELDS + 2] = tiles.getLength(i);
+        }
+        return new Alignment(packed);
+    }
+
+    public int size() {
+        return tiles.length / FIELDS;
+    }
+
+    public int getStart1(int index) {
+        return tiles[index * FIELDS];
+    }
+
+    public int getStart2(int index) {
+        return tiles[index * FIELDS + 1];
+    }
+
+    public int getLength(int index) {
+        return tiles[index * FIELDS + 2];
+    }
+
+    /**
+     * Maps the tiles to the lines of the normalised text of each file
+     *
+     * @param file1 - first file of the comparison
+     * @param file2 - second file of the comparison
+     * @return packed quadruples of first and last line in file 1 then first and last line in file 2, counted from 0
+     */
+    public int[] getLineRanges(JavaFile file1, JavaFile file2) {
+        int[] lines1 = file1.getTokenLines();
+        int[] lines2 = file2.getTokenLines();
+        int[] ranges = new int[size() * 4];
+        for (int i = 0; i < size(); i++) {
+            ranges[i * 4] = lines1[getStart1(i)];
+            ranges[i * 4 + 1] = lines1[getStart1(i) + getLength(i) - 1];
+            ranges[i * 4 + 2] = lines2[getStart2(i)];
+            ranges[i * 4 + 3] = lines2[getStart2(i) + getLength(i) - 1];
+        }
+        return ranges;
+    }
+}
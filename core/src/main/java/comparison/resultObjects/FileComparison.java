@@ -9,7 +9,7 @@ import java.io.Serializable;
 import java.util.*;
 import java.util.stream.Collectors;
 
-public class FileComparison implements Comparable, Serializable {
+public class FileComparison implements Comparable<FileComparison>, Serializable {
 
 
     // TODO change
@@ -18,6 +18,8 @@ public class FileComparison implements Comparable, Serializable {
     private final JavaFile file2;
     private int algorithm_score = 0;
     private List<MethodComparison> method_comparisons = new ArrayList<>();
+    // matching regions of the files, null if the algorithm does not align files or the score came from the cache
+    private Alignment alignment;
 
     /**
      * Creates a file comparison by comparing all methods in file 1 with all methods in file 2
@@ -30,6 +32,17 @@ public class FileComparison implements Comparable, Serializable {
      * @param alg   - Selected algorithm instance
      */
     public FileComparison(JavaFile file1, JavaFile file2, ComparisonAlgorithm alg) {
+        this(file1, file2, (int) (alg.compareFiles(file1, file2) * 100), alg.getAlignment());
+    }
+
+    /**
+     * Creates a file comparison for a pair of files that has already been scored by an algorithm
+     *
+     * @param file1
+     * @param file2
+     * @param algorithm_score - algorithm score 0-100
+     */
+    public FileComparison(JavaFile file1, JavaFile file2, int algorithm_score) {
         this.file1 = file1;
         this.file2 = file2;
         // get all method comparisons that exceed a certain similarity threshold
@@ -37,7 +50,20 @@ public class FileComparison implements Comparable, Serializable {
                 compareMethods(file1, file2).stream()
                 .filter(x -> x.getTotalScore() > THRESHOLD)
                 .collect(Collectors.toList());
-        algorithm_score = (int) (alg.compareFiles(file1, file2) * 100);
+        this.algorithm_score = algorithm_score;
+    }
+
+    /**
+     * Creates a file comparison for a pair of files that has already been scored, keeping the regions the algorithm matched
+     *
+     * @param file1
+     * @param file2
+     * @param algorithm_score - algorithm score 0-100
+     * @param alignment       - matching regions of the files, may be null
+     */
+    public FileComparison(JavaFile file1, JavaFile file2, int algorithm_score, Alignment alignment) {
+        this(file1, file2, algorithm_score);
+        this.alignment = alignment;
     }
 
     public List<MethodComparison> getMethod_comparisons() {
@@ -52,6 +78,13 @@ public class FileComparison implements Comparable, Serializable {
         return file2;
     }
 
+    /**
+     * @return matching regions of the files, null if not known
+     */
+    public Alignment getAlignment() {
+        return alignment;
+    }
+
     /**
      * Returns the algorithm comparison score
      *
@@ -89,8 +122,8 @@ public class FileComparison implements Comparable, Serializable {
 
 
     @Override
-    public int compareTo(Object o) {
-        return ((FileComparison) o).getScore() - this.getScore();
+    public int compareTo(FileComparison o) {
+        return o.getScore() - this.getScore();
     }
 
 
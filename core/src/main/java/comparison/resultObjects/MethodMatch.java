@@ -0,0 +1,70 @@
+package comparison.resultObjects;
+
+import normalisation.elements.elementContainers.JavaFile;
+import normalisation.elements.elementContainers.Method;
+import normalisation.util.SimHash;
+
+/**
+ * A method found in two different files with SimHashes only a few bits apart, found without comparing the files as a pair
+ */
+public class MethodMatch implements Comparable<MethodMatch> {
+
+    private final JavaFile file1;
+    private final Method method1;
+    private final JavaFile file2;
+    private final Method method2;
+    private final int distance;
+
+    /**
+     * @param file1    - file holding the first method
+     * @param method1  - first method
+     * @param file2    - file holding the second method
+     * @param method2  - second method
+     * @param distance - number of bits their SimHashes differ in
+     */
+    public MethodMatch(JavaFile file1, Method method1, JavaFile file2, Method method2, int distance) {
+        this.file1 = file1;
+        this.method1 = method1;
+        this.file2 = file2;
+        this.method2 = method2;
+        this.distance = distance;
+    }
+
+    public JavaFile getFile1() {
+        return file1;
+    }
+
+    public Method getMethod1() {
+        return method1;
+    }
+
+    public JavaFile getFile2() {
+        return file2;
+    }
+
+    public Method getMethod2() {
+        return method2;
+    }
+
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return share of equal SimHash bits 0-100
+     */
+    public int getScore() {
+        return (SimHash.BITS - distance) * 100 / SimHash.BITS;
+    }
+
+    /**
+     * Closest matches first, ties in the order of the file paths
+     */
+    @Override
+    public int compareTo(MethodMatch o) {
+        if (distance != o.distance) return Integer.compare(distance, o.distance);
+        int first = file1.getFile().getPath().compareTo(o.file1.getFile().getPath());
+        if (first != 0) return first;
+        return file2.getFile().getPath().compareTo(o.file2.getFile().getPath());
+    }
+}
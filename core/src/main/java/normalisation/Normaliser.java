@@ -26,6 +26,7 @@ public class Normaliser {
     public void normaliseFile(JavaFile input) {
         // perform enabled normalisation features
         enabled_features.forEach(enabled_feature -> enabled_feature.perform(input));
+        input.resetTokens();
 
     }
 
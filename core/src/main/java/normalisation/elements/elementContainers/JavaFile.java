@@ -0,0 +1,333 @@
+package normalisation.elements.elementContainers;
+
+import normalisation.elements.JavaElement;
+import normalisation.util.MinHashSignature;
+import normalisation.util.TokenDictionary;
+import normalisation.util.TokenHistogram;
+import normalisation.util.Winnowing;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+
+
+/**
+ *
+ */
+
+public class JavaFile extends ElementContainer implements JavaElement {
+
+    private List<String> imports;
+    private File file;
+    private List<ClassObject> classes;
+    private final byte[] content_hash;
+    List<Method> final_methods;
+    // token ids of the file text and its length in characters, built on first use and cleared when the file is normalised
+    private int[] tokens;
+    // dictionary the token ids come from, set by the run comparing the file
+    private TokenDictionary dictionary = TokenDictionary.getShared();
+    private int text_length;
+    private TokenHistogram histogram;
+    private MinHashSignature min_hash;
+    private long[] fingerprints;
+    private int[] line_hashes;
+    private byte[] normalised_hash;
+
+    public JavaFile(File file) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        this(file, Files.readAllLines(Paths.get(file.getAbsolutePath())));
+    }
+
+    /**
+     * Parses a file from lines that have already been read
+     *
+     * @param file      - file the lines were read from
+     * @param raw_lines - lines of the file, modified during parsing
+     */
+    public JavaFile(File file, List<String> raw_lines) throws InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        content_hash = hashContent(raw_lines);
+        List<String> lines = preProcess(raw_lines);
+        body = getElements(".*(class|interface)\\s+.*\\{\\s*", lines, ClassObject.class);
+        imports = getImports(lines);
+        combineComments();
+        this.file = file;
+        this.original_string = this.toString();
+    }
+
+public List<Method> getFinalMethods(){
+        if(final_methods == null){
+            final_methods = this.getClasses().stream()
+                    .map(ClassObject::getMethods)
+                    .flatMap(Collection::stream)
+                    .collect(Collectors.toList());
+        }
+
+        return new ArrayList<>(final_methods);
+
+}
+
+    /**
+     * Hashes the original content of the file, used to recognise unchanged files between runs
+     *
+     * @param lines original lines
+     * @return SHA-256 digest of the lines
+     */
+    private static byte[] hashContent(List<String> lines) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String line : lines) {
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns a hash of the original content of the file before parsing and normalisation
+     *
+     * @return SHA-256 digest
+     */
+    public byte[] getContentHash() {
+        return content_hash.clone();
+    }
+
+    /**
+     * Returns a hash of the normalised text of the file, built on first use and cleared when the file is normalised
+     *
+     * @return SHA-256 digest, must not be modified
+     */
+    public byte[] getNormalisedHash() {
+        if (normalised_hash == null) normalised_hash = hashContent(Collections.singletonList(toString()));
+        return normalised_hash;
+    }
+
+    /**
+     * Normalises whitespace and numbers lines
+     *
+     * @param lines
+     * @return
+     */
+    private static List<String> preProcess(List<String> lines) {
+
+
+        // pads brackets with spaces
+        for (int i = 0; i < lines.size(); i++) {
+            String new_line = lines.get(i).replaceAll("\\(", " ( ")
+                    .replaceAll("\\)", " ) ")
+                    .replaceAll("\\{", " { ")
+                    .replaceAll("}", " } ")
+                    .replaceAll(";", " ; ")
+                    .replaceAll("=", " = ")
+                    .replaceAll("=\\s*=", " == ");
+            lines.set(i, new_line);
+            String line = lines.get(i);
+            char[] charArray = line.toCharArray();
+            for (int j = 0; j < charArray.length; j++) {
+                char c = charArray[j];
+                if (c == '{' && !checkInString(line, j)) {
+                    String start = line.substring(0, j + 1);
+                    String end = line.substring(j + 1, line.length() - 1);
+                    lines.set(i, start);
+                    if (!end.strip().trim().isBlank()) lines.add(i + 1, end);
+                    break;
+                }
+
+            }
+        }
+
+        // remove empty lines and normalise whitespace
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            String new_line = line.replaceAll("\\s+", " ").strip().trim();
+            if (new_line.isBlank()) {
+                lines.remove(i);
+                i--;
+            } else lines.set(lines.indexOf(line), new_line);
+        }
+
+
+        return lines;
+    }
+
+    /**
+     * Extracts import lines and stores them in list
+     *
+     * @param lines
+     * @return
+     */
+    private List<String> getImports(List<String> lines) {
+        return lines.stream()
+                .filter(line -> line.matches("^\\s*import\\s+.*"))
+                .collect(Collectors.toList());
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the whitespace separated tokens of the file as ids from its {@link TokenDictionary}.
+     * The array is built once and shared, it must not be modified
+     *
+     * @return token ids
+     */
+    public int[] getTokens() {
+        if (tokens == null) {
+            String text = toString();
+            text_length = text.length();
+            tokens = dictionary.tokenise(text);
+        }
+        return tokens;
+    }
+
+    /**
+     * @return dictionary the token ids come from
+     */
+    public TokenDictionary getTokenDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Sets the dictionary the token ids come from, files compared with each other must use the same one.
+     * Views built from ids of another dictionary are built again on first use
+     *
+     * @param dictionary - token dictionary of the run comparing the file
+     */
+    public void setTokenDictionary(TokenDictionary dictionary) {
+        if (this.dictionary == dictionary) return;
+        this.dictionary = dictionary;
+        tokens = null;
+        histogram = null;
+        min_hash = null;
+        fingerprints = null;
+    }
+
+    /**
+     * @return length of the file text in characters
+     */
+    public int getTextLength() {
+        getTokens();
+        return text_length;
+    }
+
+    /**
+     * Returns the number of occurrences of each token, built once from {@link #getTokens()}
+     *
+     * @return token histogram
+     */
+    public TokenHistogram getHistogram() {
+        if (histogram == null) histogram = new TokenHistogram(getTokens());
+        return histogram;
+    }
+
+    /**
+     * Returns the MinHash signature of the token shingles, built once from {@link #getTokens()}
+     *
+     * @return MinHash signature
+     */
+    public MinHashSignature getMinHash() {
+        if (min_hash == null) min_hash = new MinHashSignature(getTokens());
+        return min_hash;
+    }
+
+    /**
+     * Returns the winnowed fingerprints of the token k-grams, built once from {@link #getTokens()}.
+     * The array is shared, it must not be modified
+     *
+     * @return fingerprints sorted by hash, see {@link Winnowing#fingerprints(int[])}
+     */
+    public long[] getFingerprints() {
+        if (fingerprints == null) fingerprints = Winnowing.fingerprints(getTokens());
+        return fingerprints;
+    }
+
+    /**
+     * Returns a hash of each non blank line of the file text with surrounding whitespace removed, built on first use
+     *
+     * @return line hashes in order
+     */
+    public int[] getLineHashes() {
+        if (line_hashes == null) {
+            line_hashes = Arrays.stream(toString().split("\n"))
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .mapToInt(String::hashCode)
+                    .toArray();
+        }
+        return line_hashes;
+    }
+
+    /**
+     * Finds the line of the file text each token is on, built on each call as it is only needed to display results
+     *
+     * @return line index of each token in {@link #getTokens()}, counted from 0
+     */
+    public int[] getTokenLines() {
+        return TokenDictionary.tokenLines(toString());
+    }
+
+    /**
+     * Clears the cached tokens and the views built from them, called whenever the file text is changed
+     */
+    public void resetTokens() {
+        tokens = null;
+        histogram = null;
+        min_hash = null;
+        fingerprints = null;
+        line_hashes = null;
+        normalised_hash = null;
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < imports.size(); i++) {
+            String anImport = imports.get(i);
+            sb.append(anImport);
+            if (i != imports.size() - 1) sb.append("\n");
+        }
+        return sb.toString() + super.toString();
+    }
+
+
+
+    public void sortImports() {
+        Collections.sort(imports);
+    }
+
+    /**
+     * Returns list of all classes within the file
+     *
+     * @return list of ClassObject's
+     */
+    public List<ClassObject> getClasses() {
+        if(classes == null){
+            classes =  body.stream().filter(x -> x instanceof ClassObject)
+                    .map(ClassObject.class::cast)
+                    .collect(Collectors.toList());
+        }
+        return classes;
+
+    }
+
+
+
+
+}
+
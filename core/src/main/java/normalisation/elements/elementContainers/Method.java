@@ -1,10 +1,12 @@
 package normalisation.elements.elementContainers;
 
 import com.github.s3curitybug.similarityuniformfuzzyhash.UniformFuzzyHash;
+import normalisation.elements.Comment;
 import normalisation.elements.JavaElement;
 import normalisation.elements.Variable;
 import normalisation.util.CommentPatterns;
 import normalisation.util.ProtectionLevel;
+import normalisation.util.SimHash;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -26,6 +28,8 @@ public class Method extends ElementContainer implements JavaElement {
     private boolean is_static = false;
     private String return_type = "";
     private UniformFuzzyHash hash;
+    private String[] body_tokens;
+    private long sim_hash;
     List<String> type_list;
     List<String> name_list;
     List<String> dec_list;
@@ -96,6 +100,30 @@ public class Method extends ElementContainer implements JavaElement {
         return hash;
     }
 
+    /**
+     * @return whitespace separated tokens of the body without comments, built once after normalisation
+     */
+    public String[] getBodyTokens() {
+        if (body_tokens == null) {
+            body_tokens = body.stream()
+                    .filter(element -> !(element instanceof Comment))
+                    .map(Object::toString)
+                    .collect(Collectors.joining("\n"))
+                    .trim()
+                    .split("\\s+");
+            sim_hash = SimHash.hash(body_tokens);
+        }
+        return body_tokens;
+    }
+
+    /**
+     * @return SimHash of the body tokens
+     */
+    public long getSimHash() {
+        getBodyTokens();
+        return sim_hash;
+    }
+
     public void standardiseArgs() {
         for (int i = 0; i < args.size(); i++) {
             Variable current_arg = args.get(i);
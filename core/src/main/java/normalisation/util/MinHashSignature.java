@@ -0,0 +1,86 @@
+package normalisation.util;
+
+import java.util.Arrays;
+
+/**
+ * MinHash signature of the token shingles of a file. Each slot holds the smallest value of a different hash function
+ * over the set of shingles, the chance two files agree on a slot equals the Jaccard similarity of their shingle sets,
+ * so the share of equal slots estimates it without looking at the files again
+ */
+public class MinHashSignature {
+
+    // number of hash functions, the error of the estimate is about 1 / sqrt(SIZE)
+    public static final int SIZE = 128;
+    // tokens in each shingle, matches the k-gram length of the prefilter
+    public static final int SHINGLE_LENGTH = 5;
+
+    private static final long[] SEEDS = new long[SIZE];
+
+    static {
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < SIZE; i++) {
+            seed = mix(seed + 0x9E3779B97F4A7C15L);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final int[] slots = new int[SIZE];
+
+    /**
+     * @param tokens - token ids of a file, a file with fewer than {@link #SHINGLE_LENGTH} tokens is a single shingle
+     */
+    public MinHashSignature(int[] tokens) {
+        Arrays.fill(slots, Integer.MAX_VALUE);
+        int shingles = Math.max(1, tokens.length - SHINGLE_LENGTH + 1);
+        for (int i = 0; i < shingles; i++) {
+            long shingle = 0;
+            for (int j = i; j < Math.min(tokens.length, i + SHINGLE_LENGTH); j++) {
+                shingle = 31 * shingle + tokens[j];
+            }
+            for (int s = 0; s < SIZE; s++) {
+                int value = (int) (mix(shingle ^ SEEDS[s]) >>> 33);
+                if (value < slots[s]) slots[s] = value;
+            }
+        }
+    }
+
+    public int get(int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * @param other - signature of another file
+     * @return share of slots equal in both signatures, an estimate of the Jaccard similarity of the shingle sets
+     */
+    public double similarity(MinHashSignature other) {
+        int equal = 0;
+        for (int i = 0; i < SIZE; i++) {
+            if (slots[i] == other.slots[i]) equal++;
+        }
+        return ((double) equal) / SIZE;
+    }
+
+    /**
+     * Hashes a run of slots, two signatures give the same band hash when they agree on every slot of the band
+     *
+     * @param band - index of the band
+     * @param rows - slots in each band
+     * @return hash of slots band * rows to (band + 1) * rows - 1
+     */
+    public long bandHash(int band, int rows) {
+        long hash = band;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            hash = mix(hash * 31 + slots[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * Finaliser of the SplitMix64 generator, spreads every input bit over the whole output
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,54 @@
+package normalisation.util;
+
+/**
+ * 64 bit SimHash of a token sequence. Every shingle of consecutive tokens is hashed and votes on each bit of the result,
+ * +1 if its hash has the bit set and -1 if not, the result keeps the bits with a positive total. Similar sequences share
+ * most shingles, so their SimHashes differ in few bits and the Hamming distance stands in for their similarity
+ */
+public class SimHash {
+
+    public static final int BITS = 64;
+    // tokens in each shingle, short as method bodies are only a few lines long
+    public static final int SHINGLE_LENGTH = 3;
+
+    /**
+     * @param tokens - tokens of the text, fewer than {@link #SHINGLE_LENGTH} tokens are a single shingle
+     * @return SimHash of the shingles
+     */
+    public static long hash(String[] tokens) {
+        int[] votes = new int[BITS];
+        int shingles = Math.max(1, tokens.length - SHINGLE_LENGTH + 1);
+        for (int i = 0; i < shingles; i++) {
+            long shingle = 0;
+            for (int j = i; j < Math.min(tokens.length, i + SHINGLE_LENGTH); j++) {
+                shingle = 31 * shingle + tokens[j].hashCode();
+            }
+            shingle = mix(shingle);
+            for (int bit = 0; bit < BITS; bit++) {
+                votes[bit] += ((shingle >>> bit) & 1) == 1 ? 1 : -1;
+            }
+        }
+
+        long hash = 0;
+        for (int bit = 0; bit < BITS; bit++) {
+            if (votes[bit] > 0) hash |= 1L << bit;
+        }
+        return hash;
+    }
+
+    /**
+     * @return number of bits that differ between the hashes
+     */
+    public static int distance(long hash1, long hash2) {
+        return Long.bitCount(hash1 ^ hash2);
+    }
+
+    /**
+     * Finaliser of the SplitMix64 generator, spreads every input bit over the whole output
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,106 @@
+package normalisation.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps whitespace separated tokens to small integer ids, so token sequences can be compared as int arrays.
+ * Equal tokens always get the same id, ids are given out in the order tokens are first seen.
+ * Ids therefore differ between runs, anything stored across runs uses {@link #getHash(int)} instead.
+ * Each run tokenises its files with a dictionary of its own, so the tokens of earlier runs are not kept.
+ * Safe to use from multiple threads
+ */
+public class TokenDictionary {
+
+    private static final TokenDictionary SHARED = new TokenDictionary();
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger next_id = new AtomicInteger();
+    // String hash of each token by id, replaced when it grows
+    private volatile int[] hashes = new int[1024];
+
+    /**
+     * @return dictionary of the files not given one by a run, e.g. files compared directly with an algorithm
+     */
+    public static TokenDictionary getShared() {
+        return SHARED;
+    }
+
+    /**
+     * @param token token text
+     * @return id of the token
+     */
+    public int getId(String token) {
+        Integer id = ids.get(token);
+        if (id != null) return id;
+        return ids.computeIfAbsent(token, x -> {
+            int new_id = next_id.getAndIncrement();
+            // stored before the id is published, so any thread holding the id can read its hash
+            setHash(new_id, x.hashCode());
+            return new_id;
+        });
+    }
+
+    private synchronized void setHash(int id, int hash) {
+        if (id >= hashes.length) hashes = Arrays.copyOf(hashes, Math.max(id + 1, hashes.length * 2));
+        hashes[id] = hash;
+    }
+
+    /**
+     * @param id - id of a token
+     * @return hash of the token text, the same in every run unlike the id
+     */
+    public int getHash(int id) {
+        return hashes[id];
+    }
+
+    /**
+     * Splits text on whitespace and converts each token to its id
+     *
+     * @param text text to tokenise
+     * @return token ids in order
+     */
+    public int[] tokenise(String text) {
+        String[] tokens = text.split("\\s+");
+        int[] token_ids = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) token_ids[i] = getId(tokens[i]);
+        return token_ids;
+    }
+
+    /**
+     * Finds the line of each token, splitting the text the same way as {@link #tokenise(String)}
+     *
+     * @param text text to tokenise
+     * @return line index of each token, counted from 0
+     */
+    public static int[] tokenLines(String text) {
+        String[] tokens = text.split("\\s+");
+        int[] lines = new int[tokens.length];
+        int line = 0;
+        int pos = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            // a leading empty token stands for the whitespace the text starts with
+            if (!tokens[i].isEmpty()) {
+                while (isWhitespace(text.charAt(pos))) {
+                    if (text.charAt(pos) == '\n') line++;
+                    pos++;
+                }
+            }
+            lines[i] = line;
+            pos += tokens[i].length();
+        }
+        return lines;
+    }
+
+    /**
+     * @return true for the characters matched by \s
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
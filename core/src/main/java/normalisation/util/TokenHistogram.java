@@ -0,0 +1,77 @@
+package normalisation.util;
+
+import java.util.Arrays;
+
+/**
+ * Number of occurrences of each token id in a file, stored as parallel arrays of the distinct ids in ascending order
+ * and their counts. Two histograms give the number of tokens the files have in common regardless of order,
+ * which bounds how much of one file can be matched in the other
+ */
+public class TokenHistogram {
+
+    // counts of one histogram spread over an array indexed by token id, kept zeroed between intersections
+    private static final ThreadLocal<int[]> DENSE = ThreadLocal.withInitial(() -> new int[0]);
+
+    private final int[] ids;
+    private final int[] counts;
+    private final int token_count;
+
+    /**
+     * @param tokens - token ids of a file
+     */
+    public TokenHistogram(int[] tokens) {
+        int[] sorted = tokens.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) distinct++;
+        }
+        ids = new int[distinct];
+        counts = new int[distinct];
+        int next = -1;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) ids[++next] = sorted[i];
+            counts[next]++;
+        }
+        token_count = tokens.length;
+    }
+
+    /**
+     * @return number of tokens in the file
+     */
+    public int getTokenCount() {
+        return token_count;
+    }
+
+    /**
+     * Size of the multiset intersection, each token counts as often as it occurs in the file where it is rarer.
+     * The counts of the histogram with fewer distinct tokens are spread into a per thread array indexed by token id,
+     * then the other histogram looks up each of its tokens there, so both loops are straight passes without branches
+     *
+     * @param other - histogram of another file
+     * @return number of tokens the files have in common
+     */
+    public int intersection(TokenHistogram other) {
+        TokenHistogram spread = ids.length <= other.ids.length ? this : other;
+        TokenHistogram scanned = spread == this ? other : this;
+        int[] dense = DENSE.get();
+        int max_id = Math.max(maxId(), other.maxId());
+        if (dense.length <= max_id) {
+            dense = new int[Math.max(max_id + 1, dense.length * 2)];
+            DENSE.set(dense);
+        }
+
+        for (int i = 0; i < spread.ids.length; i++) dense[spread.ids[i]] = spread.counts[i];
+        int shared = 0;
+        for (int i = 0; i < scanned.ids.length; i++) shared += Math.min(dense[scanned.ids[i]], scanned.counts[i]);
+        for (int i = 0; i < spread.ids.length; i++) dense[spread.ids[i]] = 0;
+        return shared;
+    }
+
+    /**
+     * @return largest token id in the file, -1 if it has no tokens
+     */
+    private int maxId() {
+        return ids.length == 0 ? -1 : ids[ids.length - 1];
+    }
+}
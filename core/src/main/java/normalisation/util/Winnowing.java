@@ -0,0 +1,79 @@
+package normalisation.util;
+
+import java.util.Arrays;
+
+/**
+ * Winnowing selection of fingerprints from the hashes of the token k-grams of a file, as used by MOSS.
+ * In every window of consecutive k-gram hashes the smallest is kept, so any run of at least K + WINDOW - 1 tokens
+ * shared by two files gives both of them the same fingerprint, while only a fraction of the k-grams are stored
+ */
+public class Winnowing {
+
+    // tokens in each k-gram, matches the minimum tile length of the string comparison
+    public static final int K = 5;
+    // k-gram hashes in each window, runs of K + WINDOW - 1 = 8 tokens are always found
+    public static final int WINDOW = 4;
+
+    private static final int BASE = 31;
+
+    /**
+     * Selects the positional fingerprints of a file
+     *
+     * @param tokens - token ids of the file
+     * @return fingerprints packed as (hash << 32 | position of the first token of the k-gram), sorted by hash then position
+     */
+    public static long[] fingerprints(int[] tokens) {
+        if (tokens.length < K) return new long[0];
+        int grams = tokens.length - K + 1;
+
+        // rolling hash, BASE^(K - 1) removes the token leaving the k-gram
+        int power = 1;
+        for (int i = 1; i < K; i++) power *= BASE;
+        int[] hashes = new int[grams];
+        int hash = 0;
+        for (int i = 0; i < K; i++) hash = hash * BASE + tokens[i];
+        hashes[0] = mix(hash);
+        for (int i = 1; i < grams; i++) {
+            hash = (hash - tokens[i - 1] * power) * BASE + tokens[i + K - 1];
+            hashes[i] = mix(hash);
+        }
+
+        long[] selected = new long[grams];
+        int count = 0;
+        int last = -1;
+        int windows = Math.max(1, grams - WINDOW + 1);
+        for (int start = 0; start < windows; start++) {
+            // rightmost smallest hash of the window, each position is only recorded once
+            int min = start;
+            for (int i = start + 1; i < Math.min(grams, start + WINDOW); i++) {
+                if (hashes[i] <= hashes[min]) min = i;
+            }
+            if (min != last) {
+                selected[count++] = ((long) hashes[min] << 32) | min;
+                last = min;
+            }
+        }
+        selected = Arrays.copyOf(selected, count);
+        Arrays.sort(selected);
+        return selected;
+    }
+
+    public static int hash(long fingerprint) {
+        return (int) (fingerprint >> 32);
+    }
+
+    public static int position(long fingerprint) {
+        return (int) fingerprint;
+    }
+
+    /**
+     * Spreads the bits of the polynomial hash, so the smallest hashes are not biased towards small token ids
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+}
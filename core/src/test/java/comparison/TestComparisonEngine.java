@@ -0,0 +1,247 @@
+package comparison;
+
+import comparison.algorithms.Cancellation;
+import comparison.algorithms.LineComparison;
+import comparison.algorithms.StringComparison;
+import comparison.resultObjects.Alignment;
+import comparison.resultObjects.FileComparison;
+import normalisation.Normaliser;
+import normalisation.elements.elementContainers.JavaFile;
+import normalisation.util.TokenDictionary;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static comparison.TestFiles.getFiles;
+import static comparison.TestFiles.getScoredFiles;
+import static comparison.TestFiles.getUnnormalisedFiles;
+
+public class TestComparisonEngine {
+
+    // StringComparison scores of the pairs of scored files, highest first
+    private static final String[] SCORED_PAIRS = {"Base.txt <--> ThreeQuarters.txt", "ThreeQuarters.txt <--> Half.txt",
+            "Base.txt <--> Half.txt", "Half.txt <--> Quarter.txt", "Quarter.txt <--> Unrelated.txt",
+            "ThreeQuarters.txt <--> Quarter.txt", "Base.txt <--> Quarter.txt", "ThreeQuarters.txt <--> Unrelated.txt",
+            "Base.txt <--> Unrelated.txt", "Half.txt <--> Unrelated.txt"};
+    private static final int[] SCORES = {80, 77, 60, 53, 52, 47, 28, 23, 13, 11};
+
+    /**
+     * Tests the parallel comparison produces the same comparisons in the same order as a sorted nested loop,
+     * on files scoring differently so the order is decided by the scores
+     */
+    @Test
+    public void testParallelMatchesSerial() throws Exception {
+        List<JavaFile> files = getScoredFiles();
+        StringComparison alg = new StringComparison();
+        List<FileComparison> expected = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            for (int j = i + 1; j < files.size(); j++) {
+                expected.add(new FileComparison(files.get(i), files.get(j), alg));
+            }
+        }
+        Collections.sort(expected);
+        Assert.assertEquals(SCORES.length, expected.size());
+        for (int i = 0; i < SCORES.length; i++) {
+            Assert.assertEquals(SCORED_PAIRS[i], expected.get(i).getName());
+            Assert.assertEquals(SCORES[i], expected.get(i).getScore());
+        }
+
+        ResultCollector collector = new ResultCollector(-1);
+        new ComparisonEngine(StringComparison::new, 4).compareAll(files, collector, null);
+        List<FileComparison> actual = collector.getResults();
+
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            Assert.assertEquals(expected.get(i).getScore(), actual.get(i).getScore());
+        }
+    }
+
+    /**
+     * Tests only the best scoring comparisons are kept once the collector is full, and only those above the threshold
+     */
+    @Test
+    public void testTopResults() throws Exception {
+        List<JavaFile> files = getScoredFiles();
+        ComparisonEngine engine = new ComparisonEngine(StringComparison::new, 4);
+        ResultCollector best = new ResultCollector(-1, 5);
+        engine.compareAll(files, best, null);
+
+        List<FileComparison> actual = best.getResults();
+        Assert.assertEquals(5, actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            Assert.assertEquals(SCORED_PAIRS[i], actual.get(i).getName());
+            Assert.assertEquals(SCORES[i], actual.get(i).getScore());
+        }
+
+        ResultCollector above = new ResultCollector(SCORES[3]);
+        engine.compareAll(files, above, null);
+        Assert.assertEquals(3, above.size());
+        for (int i = 0; i < above.size(); i++) Assert.assertEquals(SCORES[i], above.getResults().get(i).getScore());
+
+        ResultCollector top_above = new ResultCollector(SCORES[3], 2);
+        engine.compareAll(files, top_above, null);
+        Assert.assertEquals(2, top_above.size());
+        Assert.assertEquals(SCORED_PAIRS[1], top_above.getResults().get(1).getName());
+    }
+
+    /**
+     * Tests a stopped run keeps the comparisons finished before it stopped and is marked as partial
+     */
+    @Test
+    public void testCancelledRun() throws Exception {
+        List<JavaFile> files = getFiles();
+        ResultCollector all = new ResultCollector(-1);
+        new ComparisonEngine(StringComparison::new, 4).compareAll(files, all, null);
+        Assert.assertFalse(all.isPartial());
+        Map<String, Integer> expected = new HashMap<>();
+        all.getResults().forEach(x -> expected.put(x.getName(), x.getScore()));
+
+        Cancellation cancellation = new Cancellation();
+        AtomicInteger compared = new AtomicInteger();
+        ResultCollector stopped = new ResultCollector(-1);
+        new ComparisonEngine(StringComparison::new, 4, null, cancellation).compareAll(files, stopped, () -> {
+            if (compared.incrementAndGet() == 10) cancellation.cancel();
+        });
+        Assert.assertTrue(stopped.isPartial());
+        Assert.assertEquals(Cancellation.Reason.CANCELLED, stopped.getPartialReason());
+        Assert.assertTrue(stopped.size() < all.size());
+        stopped.getResults().forEach(x -> Assert.assertEquals(expected.get(x.getName()), (Integer) x.getScore()));
+
+    }
+
+    /**
+     * Tests a second run over unchanged files takes every score from the cache and gives the same results and alignments
+     */
+    @Test
+    public void testCachedRun() throws Exception {
+        List<JavaFile> files = getFiles();
+        File cache_dir = Files.createTempDirectory("cache").toFile();
+        EnumSet<Normaliser.Features> features = EnumSet.allOf(Normaliser.Features.class);
+        String id = new StringComparison().getId();
+
+        ResultCollector first = new ResultCollector(-1);
+        try (ResultCache cache = new ResultCache(cache_dir, features, id)) {
+            new ComparisonEngine(StringComparison::new, 4, cache).compareAll(files, first, null);
+            Assert.assertEquals(0, cache.getHits());
+        }
+
+        ResultCollector second = new ResultCollector(-1);
+        try (ResultCache cache = new ResultCache(cache_dir, features, id)) {
+            Assert.assertEquals(ComparisonEngine.pairCount(files.size()), cache.size());
+            new ComparisonEngine(StringComparison::new, 4, cache).compareAll(files, second, null);
+            Assert.assertEquals(ComparisonEngine.pairCount(files.size()), cache.getHits());
+            Assert.assertEquals(0, cache.getMisses());
+        }
+
+        for (int i = 0; i < first.size(); i++) {
+            Assert.assertEquals(first.getResults().get(i).getName(), second.getResults().get(i).getName());
+            Assert.assertEquals(first.getResults().get(i).getScore(), second.getResults().get(i).getScore());
+            Alignment expected = first.getResults().get(i).getAlignment();
+            Alignment actual = second.getResults().get(i).getAlignment();
+            Assert.assertNotNull(actual);
+            Assert.assertEquals(expected.size(), actual.size());
+            for (int t = 0; t < expected.size(); t++) {
+                Assert.assertEquals(expected.getStart1(t), actual.getStart1(t));
+                Assert.assertEquals(expected.getStart2(t), actual.getStart2(t));
+                Assert.assertEquals(expected.getLength(t), actual.getLength(t));
+            }
+        }
+    }
+
+    /**
+     * Tests a run with a minimum score still caches every exact score, and only those
+     */
+    @Test
+    public void testCachedRunWithMinimum() throws Exception {
+        // without normalisation the files differ, so some pairs score below the minimum
+        List<JavaFile> files = getUnnormalisedFiles();
+        EnumSet<Normaliser.Features> features = EnumSet.noneOf(Normaliser.Features.class);
+
+        File lines_dir = Files.createTempDirectory("cache").toFile();
+        try (ResultCache cache = new ResultCache(lines_dir, features, new LineComparison().getId())) {
+            new ComparisonEngine(LineComparison::new, 4, cache).compareAll(files, new ResultCollector(99), null);
+            Assert.assertEquals(ComparisonEngine.pairCount(files.size()), cache.size());
+        }
+
+        File string_dir = Files.createTempDirectory("cache").toFile();
+        try (ResultCache cache = new ResultCache(string_dir, features, new StringComparison().getId())) {
+            new ComparisonEngine(StringComparison::new, 4, cache).compareAll(files, new ResultCollector(99), null);
+            Assert.assertTrue(cache.size() > 0);
+            StringComparison alg = new StringComparison();
+            for (int i = 0; i < files.size(); i++) {
+                for (int j = i + 1; j < files.size(); j++) {
+                    Integer cached = cache.getScore(files.get(i), files.get(j));
+                    if (cached != null) {
+                        Assert.assertEquals((int) (alg.compareFiles(files.get(i), files.get(j)) * 100), (int) cached);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests a pair has one cached score whichever of its files comes first, also once saved and loaded again
+     */
+    @Test
+    public void testCacheKeyOrder() throws Exception {
+        List<JavaFile> files = getUnnormalisedFiles();
+        JavaFile file1 = files.get(0);
+        JavaFile file2 = files.get(1);
+        Assert.assertFalse(Arrays.equals(file1.getContentHash(), file2.getContentHash()));
+        File cache_dir = Files.createTempDirectory("cache").toFile();
+        EnumSet<Normaliser.Features> features = EnumSet.noneOf(Normaliser.Features.class);
+
+        try (ResultCache cache = new ResultCache(cache_dir, features, "order")) {
+            cache.putScore(file2, file1, 42);
+            cache.putScore(file1, file2, 42);
+            Assert.assertEquals(1, cache.size());
+            Assert.assertEquals(42, (int) cache.getScore(file1, file2));
+            Assert.assertNull(cache.getWriteError());
+        }
+        try (ResultCache cache = new ResultCache(cache_dir, features, "order")) {
+            Assert.assertEquals(1, cache.size());
+            Assert.assertEquals(42, (int) cache.getScore(file1, file2));
+            Assert.assertEquals(42, (int) cache.getScore(file2, file1));
+        }
+    }
+
+    /**
+     * Tests each engine tokenises its files with a dictionary of its own, so runs do not add to the default one
+     */
+    @Test
+    public void testRunDictionary() throws Exception {
+        List<JavaFile> files = getScoredFiles();
+        int shared_size = TokenDictionary.getShared().size();
+        ResultCollector first = new ResultCollector(-1);
+        new ComparisonEngine(StringComparison::new, 4).compareAll(files, first, null);
+        Assert.assertEquals(shared_size, TokenDictionary.getShared().size());
+        TokenDictionary dictionary = files.get(0).getTokenDictionary();
+        Assert.assertNotSame(TokenDictionary.getShared(), dictionary);
+        files.forEach(x -> Assert.assertSame(dictionary, x.getTokenDictionary()));
+
+        ResultCollector second = new ResultCollector(-1);
+        new ComparisonEngine(StringComparison::new, 4).compareAll(files, second, null);
+        Assert.assertNotSame(dictionary, files.get(0).getTokenDictionary());
+        for (int i = 0; i < first.size(); i++) {
+            Assert.assertEquals(first.getResults().get(i).getScore(), second.getResults().get(i).getScore());
+        }
+    }
+
+    @Test
+    public void testPairCount() {
+        Assert.assertEquals(0, ComparisonEngine.pairCount(1));
+        Assert.assertEquals(28, ComparisonEngine.pairCount(8));
+        Assert.assertEquals(499500, ComparisonEngine.pairCount(1000));
+    }
+}
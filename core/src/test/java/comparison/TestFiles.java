@@ -0,0 +1,56 @@
+package comparison;
+
+import normalisation.Normaliser;
+import normalisation.elements.elementContainers.JavaFile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Test files shared by the comparison tests, versions of the same class with comments, names and order changed,
+ * and classes sharing different numbers of methods with a base class, which score differently from each other
+ */
+public class TestFiles {
+
+    public final static String DIR_PREFIX = "src/test/java/normalisation/";
+    final static String[] FILES = {"TestClass.java", "AllChanged.txt", "NoComments.txt", "RenamedMethods.txt",
+            "RenamedVariables.txt", "ReorderedGlobalVariables.txt", "ReorderedImports.txt", "ReorderedMethods.txt"};
+    public final static String SCORED_DIR = "src/test/java/comparison/scored/";
+    // the base class, then classes copying 6, 4, 2 and none of its 8 methods
+    final static String[] SCORED_FILES = {"Base.txt", "ThreeQuarters.txt", "Half.txt", "Quarter.txt", "Unrelated.txt"};
+
+    /**
+     * @return the test files normalised with every feature, which makes their texts identical
+     */
+    public static List<JavaFile> getFiles() throws Exception {
+        Normaliser n = new Normaliser(EnumSet.allOf(Normaliser.Features.class));
+        List<JavaFile> files = getUnnormalisedFiles();
+        for (JavaFile file : files) n.normaliseFile(file);
+        return files;
+    }
+
+    /**
+     * @return the test files as parsed, their texts all differ
+     */
+    public static List<JavaFile> getUnnormalisedFiles() throws Exception {
+        List<JavaFile> files = new ArrayList<>();
+        for (String name : FILES) files.add(new JavaFile(new File(DIR_PREFIX + name)));
+        return files;
+    }
+
+    /**
+     * @return the classes sharing methods with the base class, normalised with every feature, every pair scores differently
+     */
+    public static List<JavaFile> getScoredFiles() throws Exception {
+        Normaliser n = new Normaliser(EnumSet.allOf(Normaliser.Features.class));
+        List<JavaFile> files = new ArrayList<>();
+        for (String name : SCORED_FILES) {
+            JavaFile file = new JavaFile(new File(SCORED_DIR + name));
+            n.normaliseFile(file);
+            files.add(file);
+        }
+        return files;
+    }
+}
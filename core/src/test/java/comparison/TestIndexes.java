@@ -0,0 +1,169 @@
+package comparison;
+
+import comparison.algorithms.Cancellation;
+import comparison.algorithms.StringComparison;
+import comparison.resultObjects.MethodMatch;
+import normalisation.Normaliser;
+import normalisation.elements.elementContainers.JavaFile;
+import normalisation.elements.elementContainers.Method;
+import normalisation.util.MinHashSignature;
+import normalisation.util.SimHash;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static comparison.TestFiles.getFiles;
+import static comparison.TestFiles.getUnnormalisedFiles;
+import static comparison.TestFiles.DIR_PREFIX;
+
+public class TestIndexes {
+
+    /**
+     * Tests that near identical files are kept as candidate pairs and compared in nested loop order
+     */
+    @Test
+    public void testCandidatePairs() throws Exception {
+        List<JavaFile> files = getFiles();
+        KGramIndex index = new KGramIndex();
+        files.forEach(index::add);
+        long[] pairs = index.candidatePairs();
+
+        Assert.assertTrue(pairs.length > 0);
+        for (int i = 1; i < pairs.length; i++) {
+            Assert.assertTrue(pairs[i - 1] < pairs[i]);
+        }
+        // all files are normalised versions of the same class
+        Assert.assertEquals(ComparisonEngine.pairCount(files.size()), pairs.length);
+
+        ResultCollector collector = new ResultCollector(-1);
+        new ComparisonEngine(StringComparison::new, 2).compare(files, pairs, collector, null);
+        Assert.assertEquals(pairs.length, collector.size());
+    }
+
+    /**
+     * Tests the LSH index pairs identical files and rejects bands needing more slots than a signature has
+     */
+    @Test
+    public void testLshIndex() throws Exception {
+        List<JavaFile> files = getFiles();
+        LshIndex index = new LshIndex();
+        for (int j = 0; j < files.size(); j++) {
+            Assert.assertEquals(j, index.add(files.get(j)));
+            // every test file normalises to the same text
+            Assert.assertEquals(j, index.candidates(j).length);
+        }
+
+        Assert.assertTrue(index.probability(0.9) > 0.99);
+        Assert.assertTrue(index.probability(0.1) < 0.01);
+        try {
+            new LshIndex(MinHashSignature.SIZE, 2);
+            Assert.fail("bands need more slots than a signature has");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * Tests files archived in a reference index are found again after reopening it, and new files are compared with them
+     */
+    @Test
+    public void testReferenceIndex() throws Exception {
+        File dir = new File(DIR_PREFIX + "inner");
+        File archive_dir = Files.createTempDirectory("archive").toFile();
+        EnumSet<Normaliser.Features> features = EnumSet.allOf(Normaliser.Features.class);
+
+        int added;
+        try (ReferenceIndex reference = new ReferenceIndex(archive_dir, features)) {
+            added = reference.addCorpus(dir, "2019", new FileDiscovery(), 4);
+            Assert.assertTrue(added > 0);
+            Assert.assertEquals(0, reference.addCorpus(dir, "2019", new FileDiscovery(), 4));
+        }
+
+        ResultCollector collector = new ResultCollector(-1);
+        try (ReferenceIndex reference = new ReferenceIndex(archive_dir, features)) {
+            Assert.assertEquals(added, reference.size());
+            Assert.assertEquals("2019", reference.getCorpus(0));
+            new Pipeline(features, StringComparison::new, 4, false)
+                    .run(dir, reference, collector, new Pipeline.Listener() {
+                    }, new Cancellation());
+        }
+
+        // every input file has an archived copy, or one with the same content, scoring 100
+        Assert.assertTrue(collector.size() > ComparisonEngine.pairCount(10));
+        Set<String> matched = new HashSet<>();
+        collector.getResults().stream().filter(x -> x.getScore() == 100).forEach(x -> {
+            matched.add(x.getFile1().getFile().getName());
+            matched.add(x.getFile2().getFile().getName());
+        });
+        Assert.assertEquals(10, matched.size());
+
+        try {
+            new ReferenceIndex(archive_dir, EnumSet.noneOf(Normaliser.Features.class));
+            Assert.fail("features differ from the archive");
+        } catch (IOException expected) {
+        }
+    }
+
+    /**
+     * Tests the gram hashes built from token ids equal those of the token text, which archived indexes store
+     */
+    @Test
+    public void testStableGrams() throws Exception {
+        for (JavaFile file : getUnnormalisedFiles()) {
+            String[] tokens = file.toString().split("\\s+");
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i + KGramIndex.DEFAULT_K <= tokens.length; i++) {
+                int hash = 0;
+                for (int j = i; j < i + KGramIndex.DEFAULT_K; j++) hash = 31 * hash + tokens[j].hashCode();
+                expected.add(hash);
+            }
+            int[] grams = KGramIndex.getGrams(file, KGramIndex.DEFAULT_K);
+            Assert.assertEquals(expected.size(), grams.length);
+            for (int gram : grams) Assert.assertTrue(expected.contains(gram));
+        }
+    }
+
+    /**
+     * Tests the SimHash index finds the same method copies as comparing every pair of methods from different files
+     */
+    @Test
+    public void testSimHashIndex() throws Exception {
+        List<JavaFile> files = getUnnormalisedFiles();
+        SimHashIndex index = new SimHashIndex(SimHashIndex.DEFAULT_MAX_DISTANCE, 0);
+        files.forEach(index::add);
+
+        int expected = 0;
+        for (int i = 0; i < files.size(); i++) {
+            for (int j = i + 1; j < files.size(); j++) {
+                for (Method m1 : files.get(i).getFinalMethods()) {
+                    for (Method m2 : files.get(j).getFinalMethods()) {
+                        if (SimHash.distance(m1.getSimHash(), m2.getSimHash()) <= SimHashIndex.DEFAULT_MAX_DISTANCE) expected++;
+                    }
+                }
+            }
+        }
+        List<MethodMatch> matches = index.findCopies();
+        Assert.assertTrue(expected > 0);
+        Assert.assertEquals(expected, matches.size());
+        for (int i = 1; i < matches.size(); i++) {
+            Assert.assertTrue(matches.get(i - 1).getDistance() <= matches.get(i).getDistance());
+        }
+        for (MethodMatch match : matches) Assert.assertNotSame(match.getFile1(), match.getFile2());
+
+        // one changed token only moves the hash of a long method a few bits
+        String[] tokens = files.get(0).getFinalMethods().stream()
+                .map(Method::getBodyTokens)
+                .max(Comparator.comparingInt(x -> x.length))
+                .orElseThrow();
+        String[] changed = tokens.clone();
+        changed[changed.length / 2] = "changed";
+        Assert.assertTrue(SimHash.distance(SimHash.hash(tokens), SimHash.hash(changed)) < SimHash.BITS / 4);
+    }
+}
@@ -0,0 +1,149 @@
+package comparison;
+
+import comparison.algorithms.AlgorithmType;
+import comparison.algorithms.Cancellation;
+import comparison.algorithms.StringComparison;
+import normalisation.Normaliser;
+import normalisation.elements.elementContainers.JavaFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static comparison.TestFiles.DIR_PREFIX;
+
+public class TestPipeline {
+
+    /**
+     * Tests the staged pipeline finds the same comparisons as comparing the parsed files directly
+     */
+    @Test
+    public void testPipelineMatchesEngine() throws Exception {
+        File dir = new File(DIR_PREFIX + "inner");
+        EnumSet<Normaliser.Features> features = EnumSet.allOf(Normaliser.Features.class);
+
+        ResultCollector piped = new ResultCollector(-1);
+        new Pipeline(features, StringComparison::new, 4, false).run(dir, piped, new Pipeline.Listener() {
+        });
+
+        List<JavaFile> files = new ArrayList<>();
+        for (File file : Objects.requireNonNull(new File(dir, "10files").listFiles())) {
+            try {
+                JavaFile java_file = new JavaFile(file);
+                new Normaliser(features).normaliseFile(java_file);
+                files.add(java_file);
+            } catch (Exception ignored) {
+            }
+        }
+        ResultCollector direct = new ResultCollector(-1);
+        new ComparisonEngine(StringComparison::new, 4).compareAll(files, direct, null);
+
+        Assert.assertEquals(direct.size(), piped.size());
+        Map<String, Integer> expected = new HashMap<>();
+        direct.getResults().forEach(x -> expected.put(x.getName(), x.getScore()));
+        piped.getResults().forEach(x -> {
+            String reversed = x.getFile2().getFile().getName() + " <--> " + x.getFile1().getFile().getName();
+            Assert.assertEquals(expected.getOrDefault(x.getName(), expected.get(reversed)), (Integer) x.getScore());
+        });
+    }
+
+    /**
+     * Tests discovery finds each file once and applies the globs and size limit
+     */
+    @Test
+    public void testDiscovery() throws Exception {
+        File dir = new File(DIR_PREFIX + "inner");
+        Assert.assertEquals(10, new FileDiscovery().find(dir).size());
+        Assert.assertEquals(0, new FileDiscovery(List.of(), List.of("10files"), 0, Long.MAX_VALUE).find(dir).size());
+
+        List<File> renamed = new FileDiscovery(List.of("Renamed*"), List.of(), 0, Long.MAX_VALUE).find(dir);
+        Assert.assertEquals(2, renamed.size());
+        renamed.forEach(x -> Assert.assertTrue(x.getName().startsWith("Renamed")));
+
+        long smallest = Long.MAX_VALUE;
+        for (File file : new FileDiscovery().find(dir)) smallest = Math.min(smallest, file.length());
+        Assert.assertEquals(1, new FileDiscovery(List.of(), List.of(), 0, smallest).find(dir).size());
+    }
+
+    /**
+     * Tests a run past its deadline stops before comparing anything and is marked as partial
+     */
+    @Test
+    public void testExpiredRun() throws Exception {
+        ResultCollector expired = new ResultCollector(-1);
+        new Pipeline(EnumSet.allOf(Normaliser.Features.class), StringComparison::new, 4, false)
+                .run(new File(DIR_PREFIX + "inner"), expired, new Pipeline.Listener() {
+                }, new Cancellation(Duration.ZERO));
+        Assert.assertEquals(Cancellation.Reason.DEADLINE, expired.getPartialReason());
+        Assert.assertEquals(0, expired.size());
+    }
+
+    /**
+     * Tests a run over an input directory that cannot be read is marked as partial rather than complete
+     */
+    @Test
+    public void testUnreadableInput() throws Exception {
+        ResultCollector collector = new ResultCollector(-1);
+        new Pipeline(EnumSet.allOf(Normaliser.Features.class), StringComparison::new, 4, false)
+                .run(new File(DIR_PREFIX + "missing"), collector, new Pipeline.Listener() {
+                });
+        Assert.assertTrue(collector.isPartial());
+        Assert.assertEquals(Cancellation.Reason.DISCOVERY_FAILED, collector.getPartialReason());
+        Assert.assertEquals(0, collector.size());
+    }
+
+    /**
+     * Tests the progress counters add up to the totals once a run finishes
+     */
+    @Test
+    public void testProgress() throws Exception {
+        Progress progress = new Progress();
+        List<Progress.Snapshot> published = Collections.synchronizedList(new ArrayList<>());
+        progress.start(published::add, 10);
+        new Pipeline(EnumSet.allOf(Normaliser.Features.class), StringComparison::new, 4, false)
+                .run(new File(DIR_PREFIX + "inner"), new ResultCollector(-1), progress);
+        progress.stop();
+
+        Progress.Snapshot last = published.get(published.size() - 1);
+        Assert.assertEquals(10, last.getTotalFiles());
+        Assert.assertEquals(ComparisonEngine.pairCount(10), last.getTotalPairs());
+        Assert.assertEquals(ComparisonEngine.pairCount(10), last.getCompared());
+        Assert.assertEquals(10, last.getNormalised());
+        Assert.assertEquals(1.0, last.getFraction(), 1e-9);
+        Assert.assertEquals(0, last.getEtaSeconds(), 1e-9);
+        Assert.assertTrue(last.getPrepareSeconds() > 0);
+    }
+
+    /**
+     * Tests an algorithm depending on the whole run only compares once every file is counted, and is not cached
+     */
+    @Test
+    public void testWholeRun() throws Exception {
+        // two copies of each file normalise to the same text, so with every file counted all of it is template code
+        File dir = Files.createTempDirectory("run").toFile();
+        for (File file : Objects.requireNonNull(new File(DIR_PREFIX + "inner/10files").listFiles())) {
+            Files.copy(file.toPath(), new File(dir, file.getName()).toPath());
+            Files.copy(file.toPath(), new File(dir, "Copy" + file.getName()).toPath());
+        }
+        File cache_dir = Files.createTempDirectory("cache").toFile();
+
+        for (int run = 0; run < 3; run++) {
+            ResultCollector collector = new ResultCollector(-1);
+            new Pipeline(EnumSet.allOf(Normaliser.Features.class), AlgorithmType.WINNOWING.getConstructor(), 4, false, cache_dir)
+                    .run(dir, collector, new Pipeline.Listener() {
+                    });
+            Assert.assertEquals(ComparisonEngine.pairCount(20), collector.size());
+            collector.getResults().forEach(x -> Assert.assertEquals(0, x.getScore()));
+        }
+        Assert.assertEquals(0, Objects.requireNonNull(cache_dir.list()).length);
+    }
+}
@@ -0,0 +1,44 @@
+package comparison;
+
+import comparison.resultObjects.FileComparison;
+import normalisation.elements.elementContainers.JavaFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Objects;
+
+import static comparison.TestFiles.DIR_PREFIX;
+
+public class TestReportWriter {
+
+    /**
+     * Tests files with the same names in different submissions get reports of their own, with names valid on every system
+     */
+    @Test
+    public void testReportNames() throws Exception {
+        File[] sources = Objects.requireNonNull(new File(DIR_PREFIX + "inner/10files").listFiles());
+        File[] copies = new File[4];
+        for (int i = 0; i < copies.length; i++) {
+            File dir = Files.createTempDirectory("submission").toFile();
+            copies[i] = new File(dir, sources[i % 2].getName());
+            Files.copy(sources[i % 2].toPath(), copies[i].toPath());
+        }
+        FileComparison first = new FileComparison(new JavaFile(copies[0]), new JavaFile(copies[1]), 50);
+        FileComparison second = new FileComparison(new JavaFile(copies[2]), new JavaFile(copies[3]), 50);
+        Assert.assertEquals(first.getName(), second.getName());
+        Assert.assertNotEquals(ReportWriter.reportName(first), ReportWriter.reportName(second));
+        Assert.assertEquals(ReportWriter.reportName(first), ReportWriter.reportName(first));
+
+        File output_dir = Files.createTempDirectory("reports").toFile();
+        ReportWriter.writeComparison(first, output_dir);
+        ReportWriter.writeComparison(second, output_dir);
+        String[] reports = Objects.requireNonNull(output_dir.list());
+        Assert.assertEquals(2, reports.length);
+        for (String report : reports) {
+            Assert.assertTrue(report.endsWith(".txt"));
+            for (char c : "<>:\"/\\|?*".toCharArray()) Assert.assertEquals(-1, report.indexOf(c));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package comparison.algorithms;
+
+import comparison.ComparisonEngine;
+import comparison.ResultCollector;
+import normalisation.elements.elementContainers.JavaFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static comparison.TestFiles.getFiles;
+import static comparison.TestFiles.getUnnormalisedFiles;
+
+public class TestFingerprintComparison {
+
+    /**
+     * Tests the fingerprint cache reuses hashes for files normalised again and evicts beyond its size
+     */
+    @Test
+    public void testFingerprintCache() throws Exception {
+        FingerprintCache cache = new FingerprintCache(4);
+        List<JavaFile> first = getFiles();
+        List<JavaFile> second = getFiles();
+        Assert.assertSame(cache.get(first.get(0)), cache.get(second.get(0)));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+
+        // with every feature the test files normalise to the same text, without any they differ
+        List<JavaFile> unnormalised = getUnnormalisedFiles();
+        Set<String> distinct = new HashSet<>();
+        unnormalised.forEach(x -> distinct.add(x.toString()));
+        cache.clear();
+        unnormalised.forEach(cache::get);
+        Assert.assertEquals(Math.min(4, distinct.size()), cache.size());
+        Assert.assertEquals(Math.max(0, distinct.size() - 4), cache.getEvictions());
+    }
+
+    /**
+     * Tests the least recently used hash is evicted first and prepared hashes are never evicted
+     */
+    @Test
+    public void testFingerprintEviction() throws Exception {
+        List<JavaFile> files = new ArrayList<>();
+        Set<String> distinct = new HashSet<>();
+        for (JavaFile file : getUnnormalisedFiles()) {
+            if (distinct.add(file.toString())) files.add(file);
+        }
+        Assert.assertTrue(files.size() >= 4);
+
+        FingerprintCache cache = new FingerprintCache(2);
+        cache.get(files.get(0));
+        cache.get(files.get(1));
+        cache.get(files.get(0));
+        cache.get(files.get(2));
+        // the second file was used least recently
+        long misses = cache.getMisses();
+        cache.get(files.get(0));
+        Assert.assertEquals(misses, cache.getMisses());
+        cache.get(files.get(1));
+        Assert.assertEquals(misses + 1, cache.getMisses());
+
+        cache.clear();
+        files.forEach(cache::prepare);
+        Assert.assertEquals(files.size(), cache.size());
+        long evictions = cache.getEvictions();
+        misses = cache.getMisses();
+        files.forEach(cache::get);
+        Assert.assertEquals(evictions, cache.getEvictions());
+        Assert.assertEquals(misses, cache.getMisses());
+    }
+
+    /**
+     * Tests the fuzzy hashes are all built while preparing the files, so comparing the pairs only looks them up
+     */
+    @Test
+    public void testPreparedFingerprints() throws Exception {
+        List<JavaFile> files = getFiles();
+        FingerprintCache cache = new FingerprintCache(100);
+        ComparisonEngine engine = new ComparisonEngine(() -> new FingerprintComparison(cache), 1);
+        engine.compareAll(files, new ResultCollector(-1), null);
+
+        // every test file normalises to the same text
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(0, cache.getMisses());
+        Assert.assertEquals(2 * ComparisonEngine.pairCount(files.size()), cache.getHits());
+        Assert.assertTrue(engine.getPrepareTime() > 0);
+    }
+}
@@ -0,0 +1,47 @@
+package comparison.algorithms;
+
+import normalisation.elements.elementContainers.JavaFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import static comparison.TestFiles.getFiles;
+
+public class TestLineComparison {
+
+    /**
+     * Tests the bit-parallel line subsequence across several words against known lengths
+     */
+    @Test
+    public void testLineComparison() throws Exception {
+        LineComparison alg = new LineComparison();
+        Assert.assertEquals(4, alg.lcs(new int[]{1, 2, 3, 4, 5}, new int[]{9, 1, 3, 4, 2, 5}));
+        Assert.assertEquals(0, alg.lcs(new int[]{1, 2}, new int[]{3, 4}));
+
+        int[] long_lines = new int[200];
+        for (int i = 0; i < long_lines.length; i++) long_lines[i] = i % 7;
+        int[] reversed = new int[200];
+        for (int i = 0; i < reversed.length; i++) reversed[i] = long_lines[199 - i];
+        Assert.assertEquals(200, alg.lcs(long_lines, long_lines));
+        Assert.assertEquals(alg.lcs(reversed, long_lines), alg.lcs(long_lines, reversed));
+
+        for (JavaFile file : getFiles()) Assert.assertEquals(1.0, alg.compareFiles(file, file), 0);
+    }
+
+    /**
+     * Tests empty files score 0 against each other and against any other file
+     */
+    @Test
+    public void testEmptyFiles() throws Exception {
+        LineComparison alg = new LineComparison();
+        JavaFile empty1 = new JavaFile(new File("Empty1.java"), new ArrayList<>());
+        JavaFile empty2 = new JavaFile(new File("Empty2.java"), new ArrayList<>());
+        Assert.assertEquals(0, empty1.getLineHashes().length);
+        Assert.assertEquals(0, alg.compareFiles(empty1, empty2), 0);
+        Assert.assertEquals(0, alg.compareFiles(empty1, empty1), 0);
+        Assert.assertEquals(0, alg.compareFiles(empty1, getFiles().get(0)), 0);
+        Assert.assertEquals(0, alg.compareFiles(getFiles().get(0), empty2), 0);
+    }
+}
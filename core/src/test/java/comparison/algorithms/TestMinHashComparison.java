@@ -0,0 +1,46 @@
+package comparison.algorithms;
+
+import normalisation.elements.elementContainers.JavaFile;
+import normalisation.util.MinHashSignature;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static comparison.TestFiles.getFiles;
+import static comparison.TestFiles.getUnnormalisedFiles;
+
+public class TestMinHashComparison {
+
+    /**
+     * Tests MinHash scores identical files 1 and estimates the Jaccard similarity of the token shingles of different files
+     */
+    @Test
+    public void testMinHash() throws Exception {
+        List<JavaFile> files = getFiles();
+        MinHashComparison alg = new MinHashComparison();
+        // every test file normalises to the same text
+        for (int i = 1; i < files.size(); i++) Assert.assertEquals(1.0, alg.compareFiles(files.get(0), files.get(i)), 0);
+
+        List<JavaFile> unnormalised = getUnnormalisedFiles();
+        for (int i = 1; i < unnormalised.size(); i++) {
+            Set<String> shingles1 = shingles(unnormalised.get(0).getTokens());
+            Set<String> shingles2 = shingles(unnormalised.get(i).getTokens());
+            Set<String> shared = new HashSet<>(shingles1);
+            shared.retainAll(shingles2);
+            double jaccard = ((double) shared.size()) / (shingles1.size() + shingles2.size() - shared.size());
+            Assert.assertEquals(jaccard, alg.compareFiles(unnormalised.get(0), unnormalised.get(i)), 0.2);
+        }
+    }
+
+    private static Set<String> shingles(int[] tokens) {
+        Set<String> shingles = new HashSet<>();
+        for (int i = 0; i + MinHashSignature.SHINGLE_LENGTH <= tokens.length; i++) {
+            shingles.add(Arrays.toString(Arrays.copyOfRange(tokens, i, i + MinHashSignature.SHINGLE_LENGTH)));
+        }
+        return shingles;
+    }
+}
@@ -0,0 +1,126 @@
+package comparison.algorithms;
+
+import comparison.resultObjects.Alignment;
+import comparison.resultObjects.FileComparison;
+import normalisation.elements.elementContainers.JavaFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static comparison.TestFiles.getFiles;
+
+public class TestTiling {
+
+    /**
+     * Tests an instance reused for many comparisons scores every pair the same as a new instance
+     */
+    @Test
+    public void testReusedWorkspace() throws Exception {
+        List<JavaFile> files = getFiles();
+        StringComparison reused = new StringComparison();
+        for (int round = 0; round < 2; round++) {
+            for (JavaFile file1 : files) {
+                for (JavaFile file2 : files) {
+                    Assert.assertEquals(new StringComparison().compareFiles(file1, file2), reused.compareFiles(file1, file2), 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests a comparison given a minimum score returns the exact score when it reaches the minimum and a lower value otherwise
+     */
+    @Test
+    public void testMinimumScore() throws Exception {
+        List<JavaFile> files = getFiles();
+        StringComparison alg = new StringComparison();
+        for (int min_score : new int[]{1, 50, 95, 100}) {
+            for (JavaFile file1 : files) {
+                for (JavaFile file2 : files) {
+                    double exact = alg.compareFiles(file1, file2);
+                    double bounded = alg.compareFiles(file1, file2, min_score / 100.0);
+                    Assert.assertTrue(alg.upperBound(file1, file2) >= exact);
+                    if ((int) (exact * 100) >= min_score || alg.isExact()) Assert.assertEquals(exact, bounded, 0);
+                    else Assert.assertTrue((int) (bounded * 100) < min_score);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests the alignment kept with a comparison pairs equal tokens of the two files in their order and maps them to lines
+     */
+    @Test
+    public void testAlignment() throws Exception {
+        List<JavaFile> files = getFiles();
+        StringComparison alg = new StringComparison();
+        for (JavaFile file1 : files) {
+            int[] lines1 = file1.getTokenLines();
+            Assert.assertEquals(file1.getTokens().length, lines1.length);
+            Assert.assertEquals(file1.toString().split("\n").length - 1, lines1[lines1.length - 1]);
+            for (JavaFile file2 : files) {
+                Alignment alignment = new FileComparison(file1, file2, alg).getAlignment();
+                int[] ranges = alignment.getLineRanges(file1, file2);
+                for (int i = 0; i < alignment.size(); i++) {
+                    for (int k = 0; k < alignment.getLength(i); k++) {
+                        Assert.assertEquals(file1.getTokens()[alignment.getStart1(i) + k], file2.getTokens()[alignment.getStart2(i) + k]);
+                    }
+                    Assert.assertTrue(ranges[i * 4] <= ranges[i * 4 + 1]);
+                    Assert.assertTrue(ranges[i * 4 + 2] <= ranges[i * 4 + 3]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests the suffix array tiles are equal and non-overlapping token runs and cover a file compared with itself
+     */
+    @Test
+    public void testSuffixArrayTiling() throws Exception {
+        List<JavaFile> files = getFiles();
+        SuffixArrayComparison alg = new SuffixArrayComparison();
+        for (JavaFile file1 : files) {
+            Assert.assertEquals(1.0, alg.compareFiles(file1, file1), 0);
+            for (JavaFile file2 : files) {
+                int[] T = file1.getTokens();
+                int[] P = file2.getTokens();
+                TileList tiles = alg.tile(T, P);
+                Set<Integer> text_marked = new HashSet<>();
+                Set<Integer> pattern_marked = new HashSet<>();
+                for (int i = 0; i < tiles.size(); i++) {
+                    for (int k = 0; k < tiles.getLength(i); k++) {
+                        Assert.assertEquals(T[tiles.getTextPos(i) + k], P[tiles.getPatternPos(i) + k]);
+                        Assert.assertTrue(text_marked.add(tiles.getTextPos(i) + k));
+                        Assert.assertTrue(pattern_marked.add(tiles.getPatternPos(i) + k));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests the multimap returns the values of each key in the order they were added, across growth and clearing
+     */
+    @Test
+    public void testIntMultimap() {
+        IntMultimap map = new IntMultimap();
+        for (int round = 0; round < 3; round++) {
+            map.clear();
+            Assert.assertEquals(-1, map.first(7));
+            for (int value = 0; value < 5000; value++) map.add(value % 1000 * 64, value);
+            Assert.assertEquals(5000, map.size());
+            for (int key = 0; key < 1000; key++) {
+                int expected = key;
+                for (int entry = map.first(key * 64); entry >= 0; entry = map.next(entry)) {
+                    Assert.assertEquals(expected, map.value(entry));
+                    expected += 1000;
+                }
+                Assert.assertEquals(key + 5000, expected);
+            }
+            Assert.assertEquals(-1, map.first(1));
+        }
+    }
+}
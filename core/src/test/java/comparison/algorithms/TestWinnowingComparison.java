@@ -0,0 +1,77 @@
+package comparison.algorithms;
+
+import comparison.ComparisonEngine;
+import comparison.ResultCollector;
+import comparison.resultObjects.FileComparison;
+import normalisation.elements.elementContainers.JavaFile;
+import normalisation.util.Winnowing;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static comparison.TestFiles.getFiles;
+
+public class TestWinnowingComparison {
+
+    /**
+     * Tests winnowing always selects a shared fingerprint for a long enough shared run of tokens
+     * and ignores fingerprints found in most files
+     */
+    @Test
+    public void testWinnowing() throws Exception {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 100; trial++) {
+            int[] tokens1 = random.ints(50, 0, 20).toArray();
+            int[] tokens2 = random.ints(50, 0, 20).toArray();
+            int run = Winnowing.K + Winnowing.WINDOW - 1;
+            System.arraycopy(tokens1, random.nextInt(50 - run), tokens2, random.nextInt(50 - run), run);
+            Set<Integer> hashes = new HashSet<>();
+            for (long fingerprint : Winnowing.fingerprints(tokens1)) hashes.add(Winnowing.hash(fingerprint));
+            boolean shared = false;
+            for (long fingerprint : Winnowing.fingerprints(tokens2)) shared |= hashes.contains(Winnowing.hash(fingerprint));
+            Assert.assertTrue(shared);
+        }
+
+        ResultCollector collector = new ResultCollector(-1);
+        List<JavaFile> files = getFiles();
+        new ComparisonEngine(AlgorithmType.WINNOWING.getConstructor(), 2).compareAll(files, collector, null);
+        Assert.assertEquals(ComparisonEngine.pairCount(files.size()), collector.size());
+        for (FileComparison comparison : collector.getResults()) Assert.assertEquals(100, comparison.getScore());
+
+        // every test file normalises to the same text, so once enough files are counted all of it is template code
+        // files compared outside an engine share the default token dictionary
+        List<JavaFile> counted = getFiles();
+        DocumentFrequency frequencies = new DocumentFrequency();
+        WinnowingComparison alg = new WinnowingComparison(frequencies);
+        for (int i = 0; i < 3; i++) getFiles().forEach(alg::prepare);
+        counted.forEach(alg::prepare);
+        counted.forEach(alg::prepare);
+        Assert.assertEquals(4 * counted.size(), frequencies.size());
+        Assert.assertTrue(frequencies.isCommon(Winnowing.hash(counted.get(0).getFingerprints()[0])));
+        Assert.assertEquals(0, alg.compareFiles(counted.get(0), counted.get(1)), 0);
+    }
+
+    /**
+     * Tests the share of files above which fingerprints are ignored can be set for a run
+     */
+    @Test
+    public void testCommonShare() throws Exception {
+        // every test file normalises to the same text, so all of it is found in every file
+        List<JavaFile> files = new ArrayList<>();
+        while (files.size() < DocumentFrequency.MIN_FILES) files.addAll(getFiles());
+
+        ResultCollector common = new ResultCollector(-1);
+        new ComparisonEngine(AlgorithmType.winnowing(DocumentFrequency.DEFAULT_MAX_SHARE), 2).compareAll(files, common, null);
+        for (FileComparison comparison : common.getResults()) Assert.assertEquals(0, comparison.getScore());
+
+        ResultCollector kept = new ResultCollector(-1);
+        new ComparisonEngine(AlgorithmType.winnowing(1), 2).compareAll(files, kept, null);
+        Assert.assertEquals(ComparisonEngine.pairCount(files.size()), kept.size());
+        for (FileComparison comparison : kept.getResults()) Assert.assertEquals(100, comparison.getScore());
+    }
+}
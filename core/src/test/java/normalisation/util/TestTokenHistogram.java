@@ -0,0 +1,26 @@
+package normalisation.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestTokenHistogram {
+
+    /**
+     * Tests the histogram intersection counts each shared token as often as it occurs in the file where it is rarer
+     */
+    @Test
+    public void testTokenHistogram() {
+        TokenHistogram histogram1 = new TokenHistogram(new int[]{3, 1, 3, 3, 7, 2});
+        TokenHistogram histogram2 = new TokenHistogram(new int[]{3, 3, 9, 1, 1});
+        Assert.assertEquals(6, histogram1.getTokenCount());
+        Assert.assertEquals(3, histogram1.intersection(histogram2));
+        Assert.assertEquals(3, histogram2.intersection(histogram1));
+        Assert.assertEquals(6, histogram1.intersection(histogram1));
+
+        // ids far apart grow the lookup array, which must be cleared again for the next intersection
+        TokenHistogram sparse = new TokenHistogram(new int[]{100000, 3, 100000});
+        Assert.assertEquals(2, sparse.intersection(new TokenHistogram(new int[]{100000, 100000, 100000})));
+        Assert.assertEquals(1, sparse.intersection(histogram2));
+        Assert.assertEquals(0, histogram1.intersection(new TokenHistogram(new int[0])));
+    }
+}
@@ -1,137 +1,108 @@
 package comparison;
 
-import com.google.common.util.concurrent.AtomicDouble;
+import comparison.algorithms.Cancellation;
 import comparison.algorithms.ComparisonAlgorithm;
 import comparison.resultObjects.FileComparison;
+import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.scene.text.Text;
 import main.GUI;
-import normalisation.Normaliser;
 import normalisation.Normaliser.Features;
-import normalisation.elements.elementContainers.JavaFile;
-import org.checkerframework.common.value.qual.IntRange;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.function.Supplier;
 
 public class Runner extends Task<List<FileComparison>> {
 
+    private static final long PROGRESS_PERIOD_MS = 250;
+
     private EnumSet<Features> enabled_features;
     private File input_dir;
-    private ComparisonAlgorithm algorithm;
+    private Supplier<? extends ComparisonAlgorithm> algorithm;
+    private int threads;
+    private boolean prefilter;
+    private File cache_dir;
     private List<FileComparison> comparisons = new ArrayList<>();
     private GUI gui;
     private Text file_count;
+    private Cancellation cancellation;
+    private Cancellation.Reason partial_reason;
 
-    public Runner(EnumSet<Features> enabled_features, File input_dir, ComparisonAlgorithm algorithm, GUI gui, Text file_count) {
+    /**
+     * @param enabled_features - normalisation features to apply to every file
+     * @param input_dir        - directory containing the files to be compared
+     * @param algorithm        - creates instances of the selected algorithm, one per comparison thread
+     * @param threads          - number of comparison threads
+     * @param prefilter        - only compare pairs of files found to share enough k-grams by a {@link KGramIndex}
+     * @param cache_dir        - directory for caching scores between runs, null for no cache
+     * @param time_limit       - time after which the run stops and shows the comparisons found so far, null for no limit
+     * @param gui              - gui to update with the results
+     * @param file_count       - text displaying the progress of the run
+     */
+    public Runner(EnumSet<Features> enabled_features, File input_dir, Supplier<? extends ComparisonAlgorithm> algorithm,
+                  int threads, boolean prefilter, File cache_dir, Duration time_limit, GUI gui, Text file_count) {
         this.enabled_features = enabled_features;
         this.input_dir = input_dir;
         this.algorithm = algorithm;
+        this.threads = threads;
+        this.prefilter = prefilter;
+        this.cache_dir = cache_dir;
         this.gui = gui;
         this.file_count = file_count;
+        this.cancellation = new Cancellation(time_limit);
 
 
     }
 
-    /**
-     * @param dir
-     * @return
-     * @throws IOException
-     */
-    static Set<File> recurseDir(File dir, Set<File> visited) throws IOException {
-        Set<File> files = new HashSet<>();
-        if (visited.contains(dir)) return files;
-        visited.add(dir);
-
-        Files.walk(dir.toPath())
-                .filter(x -> !x.toFile().equals(dir))
-                .forEach(x -> {
-                    if (Files.isDirectory(x)) {
-                        try {
-                            files.addAll(recurseDir(x.toFile(), visited));
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else {
-                        files.add(x.toFile());
-                    }
-                });
-        return files;
-    }
-
-
     @Override
-    public List<FileComparison> call() {
+    public List<FileComparison> call() throws InterruptedException, IOException {
 
 
         int THRESHOLD = 70;
 
-        Normaliser normaliser = new Normaliser(enabled_features);
-        List<File> files = null;
-        try {
-            files = new ArrayList<>(recurseDir(input_dir, new HashSet<>()));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-
-        List<JavaFile> java_files = new ArrayList<>();
-        double percent = 0;
-
-        for (File file : files) {
-            if (!file.getName().endsWith(".java") && !file.getName().endsWith(".txt")) {
-                continue;
-
-            }
-            try {
-                java_files.add(new JavaFile(file));
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-        double normalisation_percentage = (double) 50 / java_files.size();
-
-
-        file_count.setText("Files -> " + java_files.size());
-        for (JavaFile java_file : java_files) {
-            normaliser.normaliseFile(java_file);
-            percent += normalisation_percentage;
-            this.updateProgress(percent, 100);
-        }
+        // progress is sampled a few times a second rather than updated for every pair
+        Progress progress = new Progress();
+        progress.start(snapshot -> {
+            updateProgress(snapshot.getFraction(), 1);
+            Platform.runLater(() -> file_count.setText(snapshot.toString()));
+        }, PROGRESS_PERIOD_MS);
 
-        int count = 0;
-        for (int i = 0; i < java_files.size(); i++) {
-            count += IntStream.range(i + 1, java_files.size()).count();
+        // only file comparisons that exceed a certain similarity threshold are kept
+        ResultCollector collector = new ResultCollector(THRESHOLD);
+        try {
+            new Pipeline(enabled_features, algorithm, threads, prefilter, cache_dir).run(input_dir, collector, progress, cancellation);
+        } finally {
+            progress.stop();
         }
-        double comparison_percentage = (double) 50 / count;
 
+        this.comparisons = collector.getResults();
+        this.partial_reason = collector.getPartialReason();
+        return comparisons;
 
-        List<FileComparison> comparisons = new ArrayList<>();
-        for (int i = 0; i < java_files.size(); i++) {
-            for (int j = i + 1; j < java_files.size(); j++) {
-                comparisons.add(new FileComparison(java_files.get(i), java_files.get(j), algorithm));
-                percent += comparison_percentage;
-                this.updateProgress(percent, 100);
-
-            }
-        }
+    }
 
-        // filter only file comparisons that exceed a certain similarity threshold
-        comparisons = comparisons.stream()
-                .filter(x -> x.getScore() > THRESHOLD)
-                .sorted()
-                .collect(Collectors.toList());
-        this.comparisons = comparisons;
-        return comparisons;
+    /**
+     * Stops the run early, the comparisons found so far are still shown
+     */
+    public void stop() {
+        cancellation.cancel();
+    }
 
+    /**
+     * Stops the run without showing its results
+     */
+    @Override
+    public boolean cancel(boolean may_interrupt) {
+        cancellation.cancel();
+        return super.cancel(may_interrupt);
     }
 
     @Override
     protected void succeeded() {
+        if (partial_reason != null) file_count.setText(file_count.getText() + " (partial results, " + partial_reason + ")");
         gui.updateList(this.comparisons);
     }
 
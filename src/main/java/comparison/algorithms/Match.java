@@ -1,14 +0,0 @@
-package comparison.algorithms;
-
-public class Match {
-    public final int p_pos;
-    public final int s_pos;
-    public final int len;
-
-    public Match(int p_pos, int s_pos, int len) {
-        this.p_pos = p_pos;
-        this.s_pos = s_pos;
-        this.len = len;
-    }
-
-}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package main;
 
+import comparison.resultObjects.Alignment;
 import comparison.resultObjects.FileComparison;
 import comparison.resultObjects.MethodComparison;
 import javafx.collections.FXCollections;
@@ -11,11 +12,14 @@ import javafx.scene.control.*;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
 import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
 import javafx.stage.Stage;
 import org.apache.commons.io.FileUtils;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -41,7 +45,8 @@ public class ExpandedGUI {
     }
 
     /**
-     * Creates the normalisation tab which displays the two normalised files side by side
+     * Creates the normalisation tab which displays the two normalised files side by side,
+     * the lines the algorithm matched are highlighted when the comparison kept its alignment
      *
      * @param expanded_comparison - comparison being expanded
      * @return - Tab displaying normalised files
@@ -53,12 +58,25 @@ public class ExpandedGUI {
         normalised_container.setPrefSize(1200, 900);
         ScrollPane normalised_scroll_1 = new ScrollPane();
         normalised_scroll_1.setPrefSize(650, 800);
-        Text normalised_txt_1 = new Text(expanded_comparison.getFile1().toString());
-        normalised_scroll_1.setContent(normalised_txt_1);
         ScrollPane normalised_scroll_2 = new ScrollPane();
         normalised_scroll_2.setPrefSize(650, 800);
-        Text normalised_txt_2 = new Text(expanded_comparison.getFile2().toString());
-        normalised_scroll_2.setContent(normalised_txt_2);
+        String normalised_1 = expanded_comparison.getFile1().toString();
+        String normalised_2 = expanded_comparison.getFile2().toString();
+        Alignment alignment = expanded_comparison.getAlignment();
+        if (alignment == null) {
+            normalised_scroll_1.setContent(new Text(normalised_1));
+            normalised_scroll_2.setContent(new Text(normalised_2));
+        } else {
+            boolean[] matched_1 = new boolean[normalised_1.split("\n", -1).length];
+            boolean[] matched_2 = new boolean[normalised_2.split("\n", -1).length];
+            int[] ranges = alignment.getLineRanges(expanded_comparison.getFile1(), expanded_comparison.getFile2());
+            for (int i = 0; i < ranges.length; i += 4) {
+                Arrays.fill(matched_1, ranges[i], ranges[i + 1] + 1, true);
+                Arrays.fill(matched_2, ranges[i + 2], ranges[i + 3] + 1, true);
+            }
+            normalised_scroll_1.setContent(highlight(normalised_1, matched_1));
+            normalised_scroll_2.setContent(highlight(normalised_2, matched_2));
+        }
 
         normalised_container.getChildren().addAll(normalised_scroll_1, normalised_scroll_2);
 
@@ -70,6 +88,31 @@ public class ExpandedGUI {
         return normalised_tab;
     }
 
+    /**
+     * Splits the text into runs of matched and unmatched lines, colouring the matched runs
+     *
+     * @param text          - text to display
+     * @param matched_lines - true for each line to highlight
+     * @return - text node holding the runs
+     */
+    static TextFlow highlight(String text, boolean[] matched_lines) {
+        String[] lines = text.split("\n", -1);
+        TextFlow flow = new TextFlow();
+        StringBuilder run = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            run.append(lines[i]);
+            boolean last = i == lines.length - 1;
+            if (!last) run.append("\n");
+            if (last || matched_lines[i] != matched_lines[i + 1]) {
+                Text run_txt = new Text(run.toString());
+                if (matched_lines[i]) run_txt.setFill(Color.RED);
+                flow.getChildren().add(run_txt);
+                run.setLength(0);
+            }
+        }
+        return flow;
+    }
+
     /**
      * Creates the original tab which displays the two original files side by side
      *
@@ -1,11 +1,10 @@
 package main;
 
+import comparison.ReportWriter;
 import comparison.Runner;
+import comparison.algorithms.AlgorithmType;
 import comparison.algorithms.ComparisonAlgorithm;
-import comparison.algorithms.FingerprintComparison;
-import comparison.algorithms.StringComparison;
 import comparison.resultObjects.FileComparison;
-import comparison.resultObjects.MethodComparison;
 import javafx.application.Application;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -24,10 +23,11 @@ import javafx.stage.Stage;
 import normalisation.Normaliser;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import static main.ExpandedGUI.expandedWindow;
 
@@ -43,7 +43,11 @@ public class GUI extends Application {
     private FileComparison selected_comparison = null;
     private List<FileComparison> file_comparison_objects = new ArrayList<>();
     private Text file_count = new Text();
-    static Thread task;
+    private CheckBox prefilter = new CheckBox("Prefilter pairs");
+    private CheckBox use_cache = new CheckBox("Cache results");
+    private static final File CACHE_DIR = new File(System.getProperty("user.home"), ".shNew" + File.separator + "cache");
+    private TextField time_limit = new TextField();
+    static Runner task;
 
     public static void main(String[] args) {
         launch(args);
@@ -63,8 +67,9 @@ public class GUI extends Application {
 
         // Dropdown algorithm selection
         ComboBox<String> comparison_selector = new ComboBox<>();
-        comparison_selector.getItems().add("Fingerprint");
-        comparison_selector.getItems().add("String");
+        for (AlgorithmType type : AlgorithmType.values()) {
+            comparison_selector.getItems().add(type.getName());
+        }
 
         // Comparison info text window
         ScrollPane comparison_info = new ScrollPane();
@@ -239,40 +244,56 @@ public class GUI extends Application {
         file_comparison_objects.clear();
         comparison_name_strings.clear();
         comparisons.refresh();
-        // map mapping dropdown selection strings to class objects
-        Map<String, Class<? extends ComparisonAlgorithm>> class_map = new HashMap<>();
-        class_map.put("Fingerprint", FingerprintComparison.class);
-        class_map.put("String", StringComparison.class);
-
         // run button to perform comparisons
         Button btn_run = new Button("Run");
         // performs file comparisons
         btn_run.setOnAction(x -> {
-            ComparisonAlgorithm selected_class;
+            Supplier<ComparisonAlgorithm> selected_class;
             // TODO update selected item for expand button
             info.setText("");
             selected_comparison = null;
             try {
                 if (progress.progressProperty().isBound()) progress.progressProperty().unbind();
-                // creates instance of selected class
-                selected_class = class_map.get(selection.getValue()).getConstructor().newInstance();
+                // each comparison thread creates its own instance of the selected class
+                selected_class = AlgorithmType.fromName(selection.getValue()).getConstructor();
                 // generates comparisons
-                Runner runner = new Runner(enabled_features, input_dir.get(), selected_class, this, file_count);
+                Runner runner = new Runner(enabled_features, input_dir.get(), selected_class,
+                        Runtime.getRuntime().availableProcessors(), prefilter.isSelected(),
+                        use_cache.isSelected() ? CACHE_DIR : null, getTimeLimit(), this, file_count);
                 progress.progressProperty().bind(runner.progressProperty().asObject());
-                if(task != null)
-                    task.stop();
-                task = new Thread(runner);
-                task.start();
+                // a previous run still going is abandoned along with its results
+                if (task != null) task.cancel(true);
+                task = runner;
+                new Thread(runner).start();
 
             } catch (Exception e) {
                 e.printStackTrace();
             }
 
         });
-        box.getChildren().addAll(btn_run, file_count);
+        // stops the current run, keeping the comparisons found so far
+        Button btn_stop = new Button("Stop");
+        btn_stop.setOnAction(x -> {
+            if (task != null) task.stop();
+        });
+        time_limit.setPromptText("Time limit (s)");
+        time_limit.setPrefColumnCount(8);
+        box.getChildren().addAll(btn_run, btn_stop, time_limit, prefilter, use_cache, file_count);
         return box;
     }
 
+    /**
+     * @return time limit entered for the run, null if empty or not a positive number
+     */
+    private Duration getTimeLimit() {
+        try {
+            long seconds = Long.parseLong(time_limit.getText().trim());
+            return seconds > 0 ? Duration.ofSeconds(seconds) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     public HBox getSaveButtons() {
         HBox h_box = new HBox(10);
         Button btn_save = new Button("Save Selected");
@@ -291,18 +312,8 @@ public class GUI extends Application {
     }
 
     void writeComparison(FileComparison comparison) {
-        List<MethodComparison> method_comparisons = comparison.getMethod_comparisons();
-        StringBuilder sb = new StringBuilder();
-        sb.append(comparison.getName() + "\n");
-        sb.append("Algorithm score --> " + comparison.getScore() + "%\n\n");
-        for (MethodComparison method_comparison : method_comparisons) {
-            sb.append(method_comparison.getReport() + "\n");
-        }
-
         try {
-            FileOutputStream out = new FileOutputStream(output_dir.get() + "/" + comparison.getName() + ".txt");
-            out.write(sb.toString().getBytes());
-            out.close();
+            ReportWriter.writeComparison(comparison, output_dir.get());
         } catch (IOException e) {
             e.printStackTrace();
         }